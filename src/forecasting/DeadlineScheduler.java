@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Runs forecast requests earliest-deadline-first on an executor.
+ * <p>
+ * Every request carries the {@link System#nanoTime()} by which its result is needed. Requests wait in a priority
+ * queue which is drained by a fixed number of dispatchers running on the executor. Whenever a dispatcher becomes
+ * free it takes the request with the earliest deadline, regardless of the order in which they were scheduled.
+ * The number of dispatchers bounds the running requests also on executors which start a thread per task, e.g.
+ * virtual threads, where otherwise all requests would start at once in no particular order. The deadline is
+ * passed on to the request, so that it can leave out work which does not fit in (see
+ * {@link ForecastModule#combinedForecast(float, int, float, long)}).
+ *
+ * @author Matthias Sommer
+ */
+public class DeadlineScheduler {
+    @NotNull
+    private final PriorityBlockingQueue<Request> queue = new PriorityBlockingQueue<>();
+    @NotNull
+    private final Executor executor;
+    private final int maxDispatchers;
+    /**
+     * Number of dispatchers submitted to the executor and not yet finished.
+     */
+    @NotNull
+    private final AtomicInteger dispatchers = new AtomicInteger();
+    /**
+     * Tie-breaker for requests with the same deadline, first come first served.
+     */
+    @NotNull
+    private final AtomicLong sequence = new AtomicLong();
+    @NotNull
+    private final AtomicLong completed = new AtomicLong();
+    @NotNull
+    private final AtomicLong missed = new AtomicLong();
+
+    /**
+     * @param executor       runs the dispatchers
+     * @param maxDispatchers maximum number of requests running at the same time, e.g. the number of R sessions
+     */
+    public DeadlineScheduler(@NotNull Executor executor, int maxDispatchers) {
+        if (maxDispatchers < 1) {
+            throw new IllegalArgumentException("Number of dispatchers " + maxDispatchers + " is smaller than 1");
+        }
+        this.executor = executor;
+        this.maxDispatchers = maxDispatchers;
+    }
+
+    /**
+     * Schedules a request.
+     *
+     * @param deadline {@link System#nanoTime()} by which the result is needed
+     * @param request  computes the result, receives the deadline
+     * @return the result, {@code NaN} if the request threw an exception, completed exceptionally if it threw an
+     * error
+     */
+    @NotNull
+    public CompletableFuture<Double> schedule(long deadline, @NotNull LongToDoubleFunction request) {
+        Request entry = new Request(deadline, this.sequence.getAndIncrement(), request);
+        this.queue.add(entry);
+        if (reserveDispatcher()) {
+            startDispatcher();
+        }
+        return entry.result;
+    }
+
+    /**
+     * @return {@code true} if another dispatcher may be started, it is counted as running
+     */
+    private boolean reserveDispatcher() {
+        while (true) {
+            int running = this.dispatchers.get();
+            if (running >= this.maxDispatchers) {
+                return false;
+            }
+            if (this.dispatchers.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void startDispatcher() {
+        try {
+            this.executor.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            this.dispatchers.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the requests with the earliest deadlines until the queue is empty.
+     */
+    private void dispatch() {
+        do {
+            Request request;
+            while ((request = this.queue.poll()) != null) {
+                run(request);
+            }
+            this.dispatchers.decrementAndGet();
+            // a request scheduled meanwhile may have found all dispatchers running
+        } while (!this.queue.isEmpty() && reserveDispatcher());
+    }
+
+    private void run(@NotNull Request request) {
+        double forecast = Double.NaN;
+        Throwable error = null;
+        try {
+            forecast = request.function.applyAsDouble(request.deadline);
+        } catch (RuntimeException e) {
+            System.err.println("Deadline request - " + e);
+        } catch (Throwable e) {
+            // the dispatcher keeps running, the caller gets the error
+            System.err.println("Deadline request - " + e);
+            error = e;
+        }
+
+        this.completed.incrementAndGet();
+        if (System.nanoTime() - request.deadline > 0) {
+            this.missed.incrementAndGet();
+        }
+        if (error != null) {
+            request.result.completeExceptionally(error);
+        } else {
+            request.result.complete(forecast);
+        }
+    }
+
+    /**
+     * @return number of requests waiting for a dispatcher
+     */
+    public int getQueuedRequests() {
+        return this.queue.size();
+    }
+
+    /**
+     * @return number of finished requests
+     */
+    public long getCompletedRequests() {
+        return this.completed.get();
+    }
+
+    /**
+     * @return number of requests finished after their deadline
+     */
+    public long getMissedDeadlines() {
+        return this.missed.get();
+    }
+
+    private static class Request implements Comparable<Request> {
+        private final long deadline;
+        private final long sequence;
+        @NotNull
+        private final LongToDoubleFunction function;
+        @NotNull
+        private final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        Request(long deadline, long sequence, @NotNull LongToDoubleFunction function) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.function = function;
+        }
+
+        @Override
+        public int compareTo(@NotNull Request other) {
+            // nanoTime values may overflow, compare the difference
+            long difference = this.deadline - other.deadline;
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+}
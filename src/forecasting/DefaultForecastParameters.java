@@ -8,20 +8,18 @@
 package forecasting;
 
 import forecasting.combinationStrategies.Strategies;
+import forecasting.combinationStrategies.ann.ANNFactory;
+import forecasting.combinationStrategies.ann.ANNTrainer;
 import forecasting.forecastMethods.ForecastMethod;
-import forecasting.forecastMethods.arima.ARIMA;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Properties;
 
 /**
- * This class defines the settings to run the forecast module.
+ * This class defines the global default settings to run the forecast module, used by {@link ForecastModule#ForecastModule()}.
+ * Modules with individual settings are created with a {@link ForecastConfiguration}.
  */
 public abstract class DefaultForecastParameters {
     /**
@@ -50,6 +48,69 @@ public abstract class DefaultForecastParameters {
      */
     @NotNull
     public static Strategies FORECAST_COMBINATION_STRATEGY = Strategies.XCSF;
+    /**
+     * Maximum number of forecasts an expensive method (TBATS, BATS, AUTOARIMA, ETS) makes with the same model.
+     * A value of 1 re-estimates the model every step.
+     */
+    public static int REFIT_MAX_INTERVAL = 1;
+    /**
+     * Relative increase of the recent mean absolute error which forces a re-estimation before the maximum interval.
+     */
+    public static double REFIT_DRIFT_THRESHOLD = 0.5;
+    /**
+     * Set to <code>true</code> to precompute the next one-step forecasts in the background when a value is added.
+     */
+    public static boolean SPECULATIVE_FORECASTING = false;
+    /**
+     * Set to <code>true</code> to suspend expensive forecast methods with a negligible contribution to the combined forecast.
+     */
+    public static boolean ENSEMBLE_PRUNING = false;
+    /**
+     * Relative contribution to the combined forecast below which an expensive method is suspended.
+     */
+    public static double PRUNING_MIN_CONTRIBUTION = 0.01;
+    /**
+     * Number of steps a suspended method is skipped before it is probed again.
+     */
+    public static int PRUNING_SUSPEND_STEPS = 288;
+    /**
+     * Set to <code>true</code> to store the moving window of a series as float values.
+     */
+    public static boolean COMPACT_VALUES = false;
+    /**
+     * Set to <code>false</code> to not write the weights of the combination strategies to files.
+     */
+    public static boolean WEIGHT_LOGGING = true;
+    /**
+     * Set to <code>false</code> to leave the moving window out of the snapshots of the forecast modules.
+     */
+    public static boolean SNAPSHOT_WINDOW = true;
+    /**
+     * Fraction of the forecasts cut off at each end by the trimmed and winsorized mean.
+     */
+    public static double TRIM_FRACTION = 0.2;
+    /**
+     * Set to <code>true</code> to train the ANN of the combination with one update per new value instead of batch retraining.
+     */
+    public static boolean ANN_ONLINE_LEARNING = false;
+    /**
+     * Training algorithm, network type and number of training threads of the ANN combination (0: chosen by Encog).
+     */
+    public static ANNTrainer ANN_TRAINER = ANNTrainer.QUICK;
+    public static ANNFactory.TYPES ANN_NETWORK_TYPE = ANNFactory.TYPES.FEED_FORWARD;
+    public static int ANN_TRAINING_THREADS = 1;
+    /**
+     * Discount of older steps by the recursive least squares combination, in (0, 1].
+     */
+    public static double RLS_FORGETTING_FACTOR = 0.99;
+    /**
+     * Set to <code>true</code> to set negative weights of the recursive least squares combination to zero.
+     */
+    public static boolean RLS_NON_NEGATIVE = false;
+    /**
+     * Combination strategies evaluated on the same forecasts as the combination strategy, without affecting it.
+     */
+    public static List<Strategies> SHADOW_STRATEGIES = new ArrayList<>();
 
     public static int getP(int i) {
         return p.get(i);
@@ -63,71 +124,12 @@ public abstract class DefaultForecastParameters {
         return q.get(i);
     }
 
+    /**
+     * Reads the forecast.properties file of the given folder into the global defaults.
+     *
+     * @param folder of the property file, "" for the working directory
+     */
     public static void readPropertyFile(String folder) {
-        Properties prop = new Properties();
-
-        try {
-            File file = new File(folder + "forecast.properties");
-            FileInputStream fi = new FileInputStream(file);
-            prop.load(fi);
-
-            readForecastMethods(prop);
-            readForecastMethodSizes(prop);
-            readCombinationStrategy(prop);
-            readIsActiveFlag(prop);
-            readARIMAParameters(prop);
-
-            fi.close();
-        } catch (IOException e) {
-            System.err.println(e.getMessage());
-        }
-    }
-
-    private static void readIsActiveFlag(@NotNull Properties prop) {
-        IS_FORECAST_MODULE_ACTIVE = Boolean.parseBoolean(prop.getProperty("isActive"));
-    }
-
-    private static void readARIMAParameters(@NotNull Properties prop) {
-        p.clear();
-        String[] pString = prop.getProperty("p").split(",");
-        for (String s : pString) {
-            p.add(Integer.valueOf(s));
-        }
-
-        d.clear();
-        String[] dString = prop.getProperty("d").split(",");
-        for (String s : dString) {
-            d.add(Integer.valueOf(s));
-        }
-
-        q.clear();
-        String[] qString = prop.getProperty("q").split(",");
-        for (String s : qString) {
-            q.add(Integer.valueOf(s));
-        }
-    }
-
-    private static void readCombinationStrategy(@NotNull Properties prop) {
-        String strategyName = prop.getProperty("combinationStrategy").trim().toUpperCase();
-        FORECAST_COMBINATION_STRATEGY = Strategies.valueOf(strategyName);
-    }
-
-    private static void readForecastMethods(@NotNull Properties prop) {
-        List<ForecastMethod> methods = new ArrayList<>();
-        String[] forecastMethods = prop.getProperty("forecastMethods").split(",");
-
-        for (String forecastMethod : forecastMethods) {
-            methods.add(ForecastMethod.valueOf(forecastMethod.trim().toUpperCase()));
-        }
-        DEFAULT_FORECAST_METHODS = methods;
-    }
-
-    private static void readForecastMethodSizes(@NotNull Properties prop) {
-        List<Integer> sizes = new ArrayList<>();
-        String[] sizeString = prop.getProperty("dataPoints").split(",");
-        for (String size : sizeString) {
-            sizes.add(Integer.valueOf(size));
-        }
-        FORECAST_METHOD_DATA_POINTS = sizes;
+        ForecastConfiguration.readPropertyFile(folder).applyToDefaults();
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import forecasting.forecastMethods.AbstractForecastMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Suspends forecast methods of one time series whose cost is high and whose contribution to the combined
+ * forecast is negligible.
+ * <p>
+ * The cost of a method is the exponentially smoothed duration of its forecasts. Its marginal contribution is
+ * measured when the actual value arrives: the absolute error of the average of all individual forecasts is
+ * compared with the error of the average without the method (leave-one-out). The average serves as a cheap,
+ * stateless proxy for the configured combination strategy. A method is suspended if its share of the ensemble
+ * duration is at least {@link #COST_SHARE} and its smoothed contribution, relative to the smoothed error of the
+ * average, is below the minimum contribution. After the suspension it is re-probed for {@link #PROBE_STEPS}
+ * steps and suspended again if it still does not pay off. The active method with the highest contribution is
+ * always kept.
+ *
+ * @author Matthias Sommer
+ */
+public class EnsemblePruner {
+    /**
+     * Smoothing factor of the latencies and contributions.
+     */
+    private static final double ALPHA = 0.1;
+    /**
+     * Minimum share of the ensemble duration for a method to be considered expensive.
+     */
+    private static final double COST_SHARE = 0.25;
+    /**
+     * Number of evaluated steps before a method may be suspended.
+     */
+    private static final int PROBE_STEPS = 20;
+
+    @NotNull
+    private final List<AbstractForecastMethod> forecastMethods;
+    private final boolean enabled;
+    private final double minContribution;
+    private final int suspendSteps;
+
+    /**
+     * Smoothed duration of a forecast in nanoseconds.
+     */
+    @NotNull
+    private final double[] latencies;
+    /**
+     * Smoothed increase of the absolute error of the average when the method is left out.
+     */
+    @NotNull
+    private final double[] contributions;
+    /**
+     * Number of evaluated steps since the method was (re-)activated.
+     */
+    @NotNull
+    private final int[] evaluations;
+    /**
+     * Remaining steps of the suspension, 0 if the method is active.
+     */
+    @NotNull
+    private final int[] suspensions;
+    @NotNull
+    private final double[] forecasts;
+    private double averageError = Double.NaN;
+
+    /**
+     * @param forecastMethods the methods of the time series, in the order of the forecast module
+     * @param enabled         {@code false} only measures latencies and contributions without suspending methods
+     * @param minContribution relative contribution below which an expensive method is suspended
+     * @param suspendSteps    number of steps a method stays suspended before it is probed again
+     */
+    public EnsemblePruner(@NotNull List<AbstractForecastMethod> forecastMethods, boolean enabled, double minContribution, int suspendSteps) {
+        this.forecastMethods = forecastMethods;
+        this.enabled = enabled;
+        this.minContribution = minContribution;
+        this.suspendSteps = suspendSteps;
+
+        int size = forecastMethods.size();
+        this.latencies = new double[size];
+        this.contributions = new double[size];
+        this.evaluations = new int[size];
+        this.suspensions = new int[size];
+        this.forecasts = new double[size];
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return {@code true} if the method has to make a forecast in this step
+     */
+    public boolean isActive(int method) {
+        return this.suspensions[method] == 0;
+    }
+
+    /**
+     * Advances the suspensions by one step. Called once per combined forecast.
+     */
+    void nextStep() {
+        for (int i = 0; i < this.suspensions.length; i++) {
+            if (this.suspensions[i] > 0 && --this.suspensions[i] == 0) {
+                this.evaluations[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Records the duration of a forecast.
+     *
+     * @param method index of the forecast method
+     * @param nanos  duration of the forecast
+     */
+    void recordLatency(int method, long nanos) {
+        if (this.latencies[method] == 0) {
+            this.latencies[method] = nanos;
+        } else {
+            this.latencies[method] = ALPHA * nanos + (1 - ALPHA) * this.latencies[method];
+        }
+    }
+
+    /**
+     * Updates the contributions with the forecasts stored in the evaluators for the given time step and
+     * suspends methods which do not pay off.
+     *
+     * @param time  time step of the actual value
+     * @param value actual value
+     */
+    void update(float time, double value) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < this.forecasts.length; i++) {
+            this.forecasts[i] = this.forecastMethods.get(i).getEvaluator().getForecast(time);
+            if (!Double.isNaN(this.forecasts[i])) {
+                sum += this.forecasts[i];
+                count++;
+            }
+        }
+
+        if (count < 2 || Double.isNaN(value)) {
+            return;
+        }
+
+        double error = Math.abs(sum / count - value);
+        this.averageError = Double.isNaN(this.averageError) ? error : ALPHA * error + (1 - ALPHA) * this.averageError;
+
+        for (int i = 0; i < this.forecasts.length; i++) {
+            if (Double.isNaN(this.forecasts[i])) {
+                continue;
+            }
+
+            double leaveOneOutError = Math.abs((sum - this.forecasts[i]) / (count - 1) - value);
+            double contribution = leaveOneOutError - error;
+            this.contributions[i] = this.evaluations[i] == 0 ? contribution : ALPHA * contribution + (1 - ALPHA) * this.contributions[i];
+            this.evaluations[i]++;
+        }
+
+        if (this.enabled) {
+            suspendNegligibleMethods();
+        }
+    }
+
+    private void suspendNegligibleMethods() {
+        double totalLatency = 0;
+        for (double latency : this.latencies) {
+            totalLatency += latency;
+        }
+
+        // the active method with the highest contribution is never suspended, otherwise all methods of an
+        // ensemble of similar forecasts could be suspended at once
+        int best = -1;
+        for (int i = 0; i < this.latencies.length; i++) {
+            if (isActive(i) && (best == -1 || getContribution(i) > getContribution(best)
+                    || Double.isNaN(getContribution(best)))) {
+                best = i;
+            }
+        }
+
+        for (int i = 0; i < this.latencies.length; i++) {
+            if (i != best && isActive(i) && this.evaluations[i] >= PROBE_STEPS && isExpensive(i, totalLatency)
+                    && getContribution(i) < this.minContribution) {
+                this.suspensions[i] = this.suspendSteps;
+            }
+        }
+    }
+
+    private boolean isExpensive(int method, double totalLatency) {
+        return totalLatency > 0 && this.latencies[method] / totalLatency >= COST_SHARE;
+    }
+
+    /**
+     * @return indices of the forecast methods ordered by their smoothed duration, cheapest first
+     */
+    @NotNull
+    int[] getCostOrder() {
+        int[] order = new int[this.latencies.length];
+        for (int i = 0; i < order.length; i++) {
+            // insertion sort, there are only a few methods
+            int j = i;
+            while (j > 0 && this.latencies[order[j - 1]] > this.latencies[i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return smoothed duration of a forecast in nanoseconds, 0 if unknown
+     */
+    public double getLatency(int method) {
+        return this.latencies[method];
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return smoothed contribution relative to the error of the average, {@code NaN} if unknown
+     */
+    public double getContribution(int method) {
+        if (this.evaluations[method] == 0 || Double.isNaN(this.averageError)) {
+            return Double.NaN;
+        }
+        return this.contributions[method] / Math.max(this.averageError, Double.MIN_NORMAL);
+    }
+}
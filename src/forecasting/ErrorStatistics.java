@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Error statistics of all forecast methods of one {@link ForecastModule}, shared by the combination strategies.
+ * <p>
+ * The error sums come from the rolling sums of the {@link ForecastMethodEvaluator}s, which are updated when an
+ * actual value arrives. In addition, the method with the smallest latest absolute error of every step is counted
+ * over a window of steps. All values are read in O(1), so no strategy keeps its own error history.
+ *
+ * @author Matthias Sommer
+ */
+public final class ErrorStatistics {
+    /**
+     * Number of steps the winners are counted over.
+     */
+    private static final int WIN_WINDOW = 10;
+
+    @NotNull
+    private final ForecastMethodEvaluator[] evaluators;
+    @NotNull
+    private final int[] wins;
+    /**
+     * Ring buffer of the winners of the last steps.
+     */
+    @NotNull
+    private final int[] winners = new int[WIN_WINDOW];
+    private int nextWinner = 0;
+    private int winnerCount = 0;
+    private int lastWinner = -1;
+    /**
+     * Number of times actual values arrived at the evaluators.
+     */
+    private long errorStep = 0;
+
+    ErrorStatistics(@NotNull ForecastMethodEvaluator[] evaluators) {
+        this.evaluators = evaluators;
+        this.wins = new int[evaluators.length];
+    }
+
+    /**
+     * Counts the method with the smallest latest absolute error as the winner of the step. Called once per
+     * combined forecast, after the new forecasts were added to the evaluators.
+     */
+    void recordStep() {
+        int winner = -1;
+        double bestError = Double.MAX_VALUE;
+        for (int i = 0; i < this.evaluators.length; i++) {
+            double error = this.evaluators[i].lastAbsoluteError();
+            if (error < bestError) {
+                bestError = error;
+                winner = i;
+            }
+        }
+
+        this.lastWinner = winner;
+        if (winner < 0) {
+            return;
+        }
+
+        if (this.winnerCount == WIN_WINDOW) {
+            // the oldest winner leaves the window
+            this.wins[this.winners[this.nextWinner]]--;
+        } else {
+            this.winnerCount++;
+        }
+        this.wins[winner]++;
+        this.winners[this.nextWinner] = winner;
+        this.nextWinner = (this.nextWinner + 1) % WIN_WINDOW;
+    }
+
+    /**
+     * Counts the arrival of actual values at the evaluators, which changes the latest errors. Called once per
+     * call of {@link ForecastModule#addValueToEvaluators} or {@link ForecastModule#addValuesToEvaluators}.
+     */
+    void recordActualValues() {
+        this.errorStep++;
+    }
+
+    /**
+     * Strategies which learn from the latest errors compare this counter with the one of their previous update,
+     * so that repeated combinations without a new actual value do not count the same errors again.
+     *
+     * @return number of times actual values arrived at the evaluators
+     */
+    public long getErrorStep() {
+        return this.errorStep;
+    }
+
+    /**
+     * @return number of forecast methods
+     */
+    public int size() {
+        return this.evaluators.length;
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return actual value minus forecast of the latest evaluated forecast, {@code NaN} if none
+     */
+    public double getLastError(int method) {
+        return this.evaluators[method].lastError();
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return mean absolute error of the stored forecasts with a known actual value, {@code NaN} if none
+     */
+    public double getMeanAbsoluteError(int method) {
+        return this.evaluators[method].meanAbsoluteError(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return sum of the squared errors of the stored forecasts with a known actual value
+     */
+    public double getSquaredErrorSum(int method) {
+        return this.evaluators[method].getSquaredErrorSum();
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return number of stored forecasts with a known actual value
+     */
+    public int getKnownErrors(int method) {
+        return this.evaluators[method].getKnownErrors();
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return mean absolute scaled error, {@code NaN} until enough forecasts are evaluated
+     */
+    public double getMASE(int method) {
+        return this.evaluators[method].getMASE();
+    }
+
+    /**
+     * @param method index of the forecast method
+     * @return number of steps of the window in which the method had the smallest error
+     */
+    public int getWins(int method) {
+        return this.wins[method];
+    }
+
+    /**
+     * @return number of steps with a winner in the window, at most {@link #getWinWindow()}
+     */
+    public int getWinnerCount() {
+        return this.winnerCount;
+    }
+
+    public int getWinWindow() {
+        return WIN_WINDOW;
+    }
+
+    /**
+     * @return index of the winner of the latest step, -1 if no method had a known error
+     */
+    public int getLastWinner() {
+        return this.lastWinner;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Enumeration of the ways the {@link ForecastService} runs the steps of its series.
+ * Factory for the executor of a mode.
+ *
+ * @author Matthias Sommer
+ */
+public enum ExecutionMode {
+    /**
+     * A work-stealing pool with a fixed number of platform threads.
+     */
+    WORK_STEALING {
+        @NotNull
+        ExecutorService createExecutor(int threads) {
+            return new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("forecast-worker-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+    },
+    /**
+     * One virtual thread per series step. A step waiting for an R session or for Rserve only parks its virtual
+     * thread, so tens of thousands of steps can be in flight while the R session pool bounds the concurrent R
+     * calls. Requires Java 21; on older runtimes the work-stealing pool with the given number of threads, or one
+     * per processor if none is given, is used instead. A thread per step would start one platform thread per due
+     * series.
+     */
+    VIRTUAL_THREADS {
+        @NotNull
+        ExecutorService createExecutor(int threads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                System.err.println("Virtual threads are not supported by this Java runtime, using a work-stealing "
+                        + "pool of " + parallelism + " platform threads");
+                return WORK_STEALING.createExecutor(parallelism);
+            }
+        }
+    };
+
+    /**
+     * @param threads number of worker threads, modes which create a thread per step only use it if the runtime
+     *                has no virtual threads
+     * @return a new executor for the series steps
+     */
+    @NotNull
+    abstract ExecutorService createExecutor(int threads);
+}
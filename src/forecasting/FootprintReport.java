@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the heap used per series: creates many forecast modules with the settings of a property file, fills
+ * their moving windows and evaluators with a synthetic daily profile and divides the growth of the used heap by
+ * the number of modules.
+ * <p>
+ * Usage: {@code FootprintReport <property folder> [series] [steps] [compact]}
+ *
+ * @author Matthias Sommer
+ */
+public final class FootprintReport {
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        String folder = args.length > 0 ? args[0] : "";
+        int series = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        boolean compact = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        ForecastConfiguration configuration = ForecastConfiguration.readPropertyFile(folder)
+                .withSpeculativeForecasting(false)
+                .withFootprint(compact, false);
+
+        long before = usedHeap();
+        List<ForecastModule> modules = new ArrayList<>(series);
+        for (int i = 0; i < series; i++) {
+            modules.add(new ForecastModule(configuration));
+        }
+
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < series; i++) {
+                double value = 100 + 50 * Math.sin(2 * Math.PI * step / 288.0) + i % 10;
+                ForecastModule module = modules.get(i);
+                module.addValue(step, value);
+                module.combinedForecast(step, 1, step + 1);
+            }
+        }
+        long after = usedHeap();
+
+        System.out.println(String.format(Locale.ENGLISH,
+                "series=%d steps=%d window=%d compact=%b methods=%s bytesPerSeries=%.0f",
+                modules.size(), steps, configuration.getMaxDataPoints(), compact, configuration.getForecastMethods(),
+                (after - before) / (double) series));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
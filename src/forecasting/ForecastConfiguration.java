@@ -0,0 +1,659 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import forecasting.combinationStrategies.Strategies;
+import forecasting.combinationStrategies.ann.ANNFactory;
+import forecasting.combinationStrategies.ann.ANNTrainer;
+import forecasting.forecastMethods.ForecastMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Immutable settings of one {@link ForecastModule}: the forecast methods, their number of data points, the
+ * combination strategy and the optional optimisations.
+ * <p>
+ * Each module, its combination module, its strategy and its forecast methods only read the configuration they
+ * were created with, so modules with different settings can run in parallel. Use the {@code with...} methods
+ * to derive a configuration with different settings. They change single fields of a mutable draft which is
+ * then frozen into a new configuration, so a new setting only needs its field, its field in the draft, its lines
+ * in the three constructors and its own {@code with...} method.
+ *
+ * @author Matthias Sommer
+ */
+public final class ForecastConfiguration {
+    private final boolean active;
+    @NotNull
+    private final List<ForecastMethod> forecastMethods;
+    @NotNull
+    private final List<Integer> dataPoints;
+    @NotNull
+    private final Strategies combinationStrategy;
+    // ARIMA parameters
+    @NotNull
+    private final List<Integer> p;
+    @NotNull
+    private final List<Integer> d;
+    @NotNull
+    private final List<Integer> q;
+    private final int refitMaxInterval;
+    private final double refitDriftThreshold;
+    private final boolean speculativeForecasting;
+    private final boolean ensemblePruning;
+    private final double pruningMinContribution;
+    private final int pruningSuspendSteps;
+    private final boolean compactValues;
+    private final boolean weightLogging;
+    private final boolean snapshotWindow;
+    private final double trimFraction;
+    private final boolean annOnlineLearning;
+    @NotNull
+    private final ANNTrainer annTrainer;
+    @NotNull
+    private final ANNFactory.TYPES annNetworkType;
+    private final int annTrainingThreads;
+    private final double rlsForgettingFactor;
+    private final boolean rlsNonNegative;
+    @NotNull
+    private final List<Strategies> shadowStrategies;
+
+    /**
+     * Freezes a draft.
+     */
+    private ForecastConfiguration(@NotNull Draft draft) {
+        this.active = draft.active;
+        this.forecastMethods = draft.forecastMethods;
+        this.dataPoints = draft.dataPoints;
+        this.combinationStrategy = draft.combinationStrategy;
+        this.p = draft.p;
+        this.d = draft.d;
+        this.q = draft.q;
+        this.refitMaxInterval = draft.refitMaxInterval;
+        this.refitDriftThreshold = draft.refitDriftThreshold;
+        this.speculativeForecasting = draft.speculativeForecasting;
+        this.ensemblePruning = draft.ensemblePruning;
+        this.pruningMinContribution = draft.pruningMinContribution;
+        this.pruningSuspendSteps = draft.pruningSuspendSteps;
+        this.compactValues = draft.compactValues;
+        this.weightLogging = draft.weightLogging;
+        this.snapshotWindow = draft.snapshotWindow;
+        this.trimFraction = draft.trimFraction;
+        this.annOnlineLearning = draft.annOnlineLearning;
+        this.annTrainer = draft.annTrainer;
+        this.annNetworkType = draft.annNetworkType;
+        this.annTrainingThreads = draft.annTrainingThreads;
+        this.rlsForgettingFactor = draft.rlsForgettingFactor;
+        this.rlsNonNegative = draft.rlsNonNegative;
+        this.shadowStrategies = draft.shadowStrategies;
+    }
+
+    /**
+     * Mutable settings of a configuration under construction, frozen by {@link #build()}.
+     */
+    private static final class Draft {
+        private boolean active;
+        @NotNull
+        private List<ForecastMethod> forecastMethods;
+        @NotNull
+        private List<Integer> dataPoints;
+        @NotNull
+        private Strategies combinationStrategy;
+        // ARIMA parameters
+        @NotNull
+        private List<Integer> p;
+        @NotNull
+        private List<Integer> d;
+        @NotNull
+        private List<Integer> q;
+        private int refitMaxInterval;
+        private double refitDriftThreshold;
+        private boolean speculativeForecasting;
+        private boolean ensemblePruning;
+        private double pruningMinContribution;
+        private int pruningSuspendSteps;
+        private boolean compactValues;
+        private boolean weightLogging;
+        private boolean snapshotWindow;
+        private double trimFraction;
+        private boolean annOnlineLearning;
+        @NotNull
+        private ANNTrainer annTrainer;
+        @NotNull
+        private ANNFactory.TYPES annNetworkType;
+        private int annTrainingThreads;
+        private double rlsForgettingFactor;
+        private boolean rlsNonNegative;
+        @NotNull
+        private List<Strategies> shadowStrategies;
+
+        /**
+         * Creates a draft with the current values of {@link DefaultForecastParameters}.
+         */
+        Draft() {
+            this.active = DefaultForecastParameters.IS_FORECAST_MODULE_ACTIVE;
+            this.forecastMethods = unmodifiableCopy(DefaultForecastParameters.DEFAULT_FORECAST_METHODS);
+            this.dataPoints = unmodifiableCopy(DefaultForecastParameters.FORECAST_METHOD_DATA_POINTS);
+            this.combinationStrategy = DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY;
+            this.p = unmodifiableCopy(DefaultForecastParameters.p);
+            this.d = unmodifiableCopy(DefaultForecastParameters.d);
+            this.q = unmodifiableCopy(DefaultForecastParameters.q);
+            this.refitMaxInterval = DefaultForecastParameters.REFIT_MAX_INTERVAL;
+            this.refitDriftThreshold = DefaultForecastParameters.REFIT_DRIFT_THRESHOLD;
+            this.speculativeForecasting = DefaultForecastParameters.SPECULATIVE_FORECASTING;
+            this.ensemblePruning = DefaultForecastParameters.ENSEMBLE_PRUNING;
+            this.pruningMinContribution = DefaultForecastParameters.PRUNING_MIN_CONTRIBUTION;
+            this.pruningSuspendSteps = DefaultForecastParameters.PRUNING_SUSPEND_STEPS;
+            this.compactValues = DefaultForecastParameters.COMPACT_VALUES;
+            this.weightLogging = DefaultForecastParameters.WEIGHT_LOGGING;
+            this.snapshotWindow = DefaultForecastParameters.SNAPSHOT_WINDOW;
+            this.trimFraction = DefaultForecastParameters.TRIM_FRACTION;
+            this.annOnlineLearning = DefaultForecastParameters.ANN_ONLINE_LEARNING;
+            this.annTrainer = DefaultForecastParameters.ANN_TRAINER;
+            this.annNetworkType = DefaultForecastParameters.ANN_NETWORK_TYPE;
+            this.annTrainingThreads = DefaultForecastParameters.ANN_TRAINING_THREADS;
+            this.rlsForgettingFactor = DefaultForecastParameters.RLS_FORGETTING_FACTOR;
+            this.rlsNonNegative = DefaultForecastParameters.RLS_NON_NEGATIVE;
+            this.shadowStrategies = unmodifiableCopy(DefaultForecastParameters.SHADOW_STRATEGIES);
+        }
+
+        /**
+         * Copies all settings of a configuration, the base of the {@code with...} methods. The lists are
+         * unmodifiable and shared.
+         */
+        Draft(@NotNull ForecastConfiguration other) {
+            this.active = other.active;
+            this.forecastMethods = other.forecastMethods;
+            this.dataPoints = other.dataPoints;
+            this.combinationStrategy = other.combinationStrategy;
+            this.p = other.p;
+            this.d = other.d;
+            this.q = other.q;
+            this.refitMaxInterval = other.refitMaxInterval;
+            this.refitDriftThreshold = other.refitDriftThreshold;
+            this.speculativeForecasting = other.speculativeForecasting;
+            this.ensemblePruning = other.ensemblePruning;
+            this.pruningMinContribution = other.pruningMinContribution;
+            this.pruningSuspendSteps = other.pruningSuspendSteps;
+            this.compactValues = other.compactValues;
+            this.weightLogging = other.weightLogging;
+            this.snapshotWindow = other.snapshotWindow;
+            this.trimFraction = other.trimFraction;
+            this.annOnlineLearning = other.annOnlineLearning;
+            this.annTrainer = other.annTrainer;
+            this.annNetworkType = other.annNetworkType;
+            this.annTrainingThreads = other.annTrainingThreads;
+            this.rlsForgettingFactor = other.rlsForgettingFactor;
+            this.rlsNonNegative = other.rlsNonNegative;
+            this.shadowStrategies = other.shadowStrategies;
+        }
+
+        /**
+         * @return a new configuration with the settings of this draft
+         */
+        @NotNull
+        ForecastConfiguration build() {
+            return new ForecastConfiguration(this).validate();
+        }
+    }
+
+    /**
+     * Checks the settings of a new configuration.
+     *
+     * @return this configuration
+     */
+    @NotNull
+    private ForecastConfiguration validate() {
+        if (dataPoints.size() < forecastMethods.size()) {
+            throw new IllegalArgumentException("Number of data points (" + dataPoints.size()
+                    + ") is smaller than the number of forecast methods (" + forecastMethods.size() + ")");
+        }
+        if (trimFraction < 0 || trimFraction >= 0.5) {
+            throw new IllegalArgumentException("Trim fraction " + trimFraction + " is not in [0, 0.5)");
+        }
+        if (annTrainingThreads < 0) {
+            throw new IllegalArgumentException("Number of ANN training threads " + annTrainingThreads + " is negative");
+        }
+        if (!(rlsForgettingFactor > 0 && rlsForgettingFactor <= 1)) {
+            throw new IllegalArgumentException("Forgetting factor " + rlsForgettingFactor + " is not in (0, 1]");
+        }
+        return this;
+    }
+
+    @NotNull
+    private static <T> List<T> unmodifiableCopy(@NotNull List<T> values) {
+        return Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Creates a configuration from the current values of {@link DefaultForecastParameters}.
+     *
+     * @return snapshot of the global defaults
+     */
+    @NotNull
+    public static ForecastConfiguration fromDefaults() {
+        return new Draft().build();
+    }
+
+    /**
+     * Reads the forecast.properties file of the given folder. Missing optional settings keep their defaults.
+     *
+     * @param folder of the property file, "" for the working directory
+     * @return the configuration or the defaults if the file cannot be read
+     */
+    @NotNull
+    public static ForecastConfiguration readPropertyFile(String folder) {
+        Properties prop = new Properties();
+
+        File file = new File(folder + "forecast.properties");
+        try (FileInputStream fi = new FileInputStream(file)) {
+            prop.load(fi);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return fromDefaults();
+        }
+
+        return fromProperties(prop);
+    }
+
+    /**
+     * Parses the settings of a forecast.properties file.
+     *
+     * @param prop the properties
+     * @return the configuration
+     */
+    @NotNull
+    public static ForecastConfiguration fromProperties(@NotNull Properties prop) {
+        ForecastConfiguration defaults = fromDefaults();
+
+        List<ForecastMethod> methods = new ArrayList<>();
+        for (String forecastMethod : prop.getProperty("forecastMethods").split(",")) {
+            methods.add(ForecastMethod.valueOf(forecastMethod.trim().toUpperCase()));
+        }
+
+        Draft configuration = new Draft(defaults);
+        configuration.active = Boolean.parseBoolean(prop.getProperty("isActive"));
+        configuration.forecastMethods = unmodifiableCopy(methods);
+        configuration.dataPoints = unmodifiableCopy(parseIntegers(prop.getProperty("dataPoints")));
+        configuration.combinationStrategy = Strategies.valueOf(prop.getProperty("combinationStrategy").trim().toUpperCase());
+        configuration.p = unmodifiableCopy(parseIntegers(prop.getProperty("p")));
+        configuration.d = unmodifiableCopy(parseIntegers(prop.getProperty("d")));
+        configuration.q = unmodifiableCopy(parseIntegers(prop.getProperty("q")));
+        configuration.refitMaxInterval = intProperty(prop, "refitMaxInterval", defaults.refitMaxInterval);
+        configuration.refitDriftThreshold = doubleProperty(prop, "refitDriftThreshold", defaults.refitDriftThreshold);
+        configuration.speculativeForecasting = booleanProperty(prop, "speculativeForecasting", defaults.speculativeForecasting);
+        configuration.ensemblePruning = booleanProperty(prop, "ensemblePruning", defaults.ensemblePruning);
+        configuration.pruningMinContribution = doubleProperty(prop, "pruningMinContribution", defaults.pruningMinContribution);
+        configuration.pruningSuspendSteps = intProperty(prop, "pruningSuspendSteps", defaults.pruningSuspendSteps);
+        configuration.compactValues = booleanProperty(prop, "compactValues", defaults.compactValues);
+        configuration.weightLogging = booleanProperty(prop, "weightLogging", defaults.weightLogging);
+        configuration.snapshotWindow = booleanProperty(prop, "snapshotWindow", defaults.snapshotWindow);
+        configuration.trimFraction = doubleProperty(prop, "trimFraction", defaults.trimFraction);
+        configuration.annOnlineLearning = booleanProperty(prop, "annOnlineLearning", defaults.annOnlineLearning);
+        configuration.annTrainer = ANNTrainer.valueOf(prop.getProperty("annTrainer", defaults.annTrainer.name())
+                .trim().toUpperCase());
+        configuration.annNetworkType = ANNFactory.TYPES.valueOf(prop.getProperty("annNetworkType", defaults.annNetworkType.name())
+                .trim().toUpperCase());
+        configuration.annTrainingThreads = intProperty(prop, "annTrainingThreads", defaults.annTrainingThreads);
+        configuration.rlsForgettingFactor = doubleProperty(prop, "rlsForgettingFactor", defaults.rlsForgettingFactor);
+        configuration.rlsNonNegative = booleanProperty(prop, "rlsNonNegative", defaults.rlsNonNegative);
+        configuration.shadowStrategies = unmodifiableCopy(parseStrategies(prop.getProperty("shadowStrategies"), defaults.shadowStrategies));
+        return configuration.build();
+    }
+
+    /**
+     * Copies this configuration to the global {@link DefaultForecastParameters}.
+     */
+    void applyToDefaults() {
+        DefaultForecastParameters.IS_FORECAST_MODULE_ACTIVE = active;
+        DefaultForecastParameters.DEFAULT_FORECAST_METHODS = new ArrayList<>(forecastMethods);
+        DefaultForecastParameters.FORECAST_METHOD_DATA_POINTS = new ArrayList<>(dataPoints);
+        DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY = combinationStrategy;
+        DefaultForecastParameters.p = new ArrayList<>(p);
+        DefaultForecastParameters.d = new ArrayList<>(d);
+        DefaultForecastParameters.q = new ArrayList<>(q);
+        DefaultForecastParameters.REFIT_MAX_INTERVAL = refitMaxInterval;
+        DefaultForecastParameters.REFIT_DRIFT_THRESHOLD = refitDriftThreshold;
+        DefaultForecastParameters.SPECULATIVE_FORECASTING = speculativeForecasting;
+        DefaultForecastParameters.ENSEMBLE_PRUNING = ensemblePruning;
+        DefaultForecastParameters.PRUNING_MIN_CONTRIBUTION = pruningMinContribution;
+        DefaultForecastParameters.PRUNING_SUSPEND_STEPS = pruningSuspendSteps;
+        DefaultForecastParameters.COMPACT_VALUES = compactValues;
+        DefaultForecastParameters.WEIGHT_LOGGING = weightLogging;
+        DefaultForecastParameters.SNAPSHOT_WINDOW = snapshotWindow;
+        DefaultForecastParameters.TRIM_FRACTION = trimFraction;
+        DefaultForecastParameters.ANN_ONLINE_LEARNING = annOnlineLearning;
+        DefaultForecastParameters.ANN_TRAINER = annTrainer;
+        DefaultForecastParameters.ANN_NETWORK_TYPE = annNetworkType;
+        DefaultForecastParameters.ANN_TRAINING_THREADS = annTrainingThreads;
+        DefaultForecastParameters.RLS_FORGETTING_FACTOR = rlsForgettingFactor;
+        DefaultForecastParameters.RLS_NON_NEGATIVE = rlsNonNegative;
+        DefaultForecastParameters.SHADOW_STRATEGIES = new ArrayList<>(shadowStrategies);
+    }
+
+    /**
+     * @param values   comma separated strategy names, "ALL" for every strategy, empty for none
+     * @param defaults result if the setting is missing
+     */
+    @NotNull
+    private static List<Strategies> parseStrategies(String values, @NotNull List<Strategies> defaults) {
+        if (values == null) {
+            return defaults;
+        }
+        if (values.trim().equalsIgnoreCase("ALL")) {
+            return Arrays.asList(Strategies.values());
+        }
+
+        List<Strategies> strategies = new ArrayList<>();
+        for (String value : values.split(",")) {
+            if (!value.trim().isEmpty()) {
+                strategies.add(Strategies.valueOf(value.trim().toUpperCase()));
+            }
+        }
+        return strategies;
+    }
+
+    private static int intProperty(@NotNull Properties prop, @NotNull String key, int defaultValue) {
+        return Integer.parseInt(prop.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    private static double doubleProperty(@NotNull Properties prop, @NotNull String key, double defaultValue) {
+        return Double.parseDouble(prop.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    private static boolean booleanProperty(@NotNull Properties prop, @NotNull String key, boolean defaultValue) {
+        return Boolean.parseBoolean(prop.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    @NotNull
+    private static List<Integer> parseIntegers(@NotNull String values) {
+        List<Integer> integers = new ArrayList<>();
+        for (String value : values.split(",")) {
+            integers.add(Integer.valueOf(value.trim()));
+        }
+        return integers;
+    }
+
+    /**
+     * @param methods    the forecast methods to use
+     * @param dataPoints number of data points of each method
+     * @return a copy of this configuration with other forecast methods
+     */
+    @NotNull
+    public ForecastConfiguration withForecastMethods(@NotNull List<ForecastMethod> methods, @NotNull List<Integer> dataPoints) {
+        Draft copy = new Draft(this);
+        copy.forecastMethods = unmodifiableCopy(methods);
+        copy.dataPoints = unmodifiableCopy(dataPoints);
+        return copy.build();
+    }
+
+    /**
+     * @param strategy the combination strategy to use
+     * @return a copy of this configuration with another combination strategy
+     */
+    @NotNull
+    public ForecastConfiguration withCombinationStrategy(@NotNull Strategies strategy) {
+        Draft copy = new Draft(this);
+        copy.combinationStrategy = strategy;
+        return copy.build();
+    }
+
+    /**
+     * @param maxInterval    maximum number of forecasts made with the same model
+     * @param driftThreshold relative increase of the error which forces a re-estimation
+     * @return a copy of this configuration with other refit settings
+     */
+    @NotNull
+    public ForecastConfiguration withRefitScheduling(int maxInterval, double driftThreshold) {
+        Draft copy = new Draft(this);
+        copy.refitMaxInterval = maxInterval;
+        copy.refitDriftThreshold = driftThreshold;
+        return copy.build();
+    }
+
+    /**
+     * @param speculative {@code true} to precompute the next one-step forecasts when a value is added
+     * @return a copy of this configuration with another speculative forecasting setting
+     */
+    @NotNull
+    public ForecastConfiguration withSpeculativeForecasting(boolean speculative) {
+        Draft copy = new Draft(this);
+        copy.speculativeForecasting = speculative;
+        return copy.build();
+    }
+
+    /**
+     * @param pruning         {@code true} to suspend expensive methods with a negligible contribution
+     * @param minContribution relative contribution below which an expensive method is suspended
+     * @param suspendSteps    number of steps a suspended method is skipped
+     * @return a copy of this configuration with other pruning settings
+     */
+    @NotNull
+    public ForecastConfiguration withEnsemblePruning(boolean pruning, double minContribution, int suspendSteps) {
+        Draft copy = new Draft(this);
+        copy.ensemblePruning = pruning;
+        copy.pruningMinContribution = minContribution;
+        copy.pruningSuspendSteps = suspendSteps;
+        return copy.build();
+    }
+
+    /**
+     * @param compact {@code true} to store the moving window as float values, which halves its size
+     * @param logging {@code false} to not write the weights of the combination strategy to a file
+     * @return a copy of this configuration with other memory settings
+     */
+    @NotNull
+    public ForecastConfiguration withFootprint(boolean compact, boolean logging) {
+        Draft copy = new Draft(this);
+        copy.compactValues = compact;
+        copy.weightLogging = logging;
+        return copy.build();
+    }
+
+    /**
+     * @param window {@code false} to leave the moving window out of the snapshots of the modules, which saves a
+     *               copy of the window per series
+     * @return a copy of this configuration with another snapshot setting
+     */
+    @NotNull
+    public ForecastConfiguration withSnapshotWindow(boolean window) {
+        Draft copy = new Draft(this);
+        copy.snapshotWindow = window;
+        return copy.build();
+    }
+
+    /**
+     * @param fraction fraction of the forecasts cut off at each end by the trimmed and winsorized mean, in [0, 0.5)
+     * @return a copy of this configuration with another trim fraction
+     */
+    @NotNull
+    public ForecastConfiguration withTrimFraction(double fraction) {
+        Draft copy = new Draft(this);
+        copy.trimFraction = fraction;
+        return copy.build();
+    }
+
+    /**
+     * @param online {@code true} to train the ANN with one update per new pair instead of batch retraining
+     * @return a copy of this configuration with another ANN learning mode
+     */
+    @NotNull
+    public ForecastConfiguration withAnnOnlineLearning(boolean online) {
+        Draft copy = new Draft(this);
+        copy.annOnlineLearning = online;
+        return copy.build();
+    }
+
+    /**
+     * @param trainer     algorithm of the batch training of the ANN
+     * @param networkType type of the ANN
+     * @param threads     number of threads of a batch training, 0 to let Encog decide
+     * @return a copy of this configuration with other ANN training settings
+     */
+    @NotNull
+    public ForecastConfiguration withAnnTraining(@NotNull ANNTrainer trainer, @NotNull ANNFactory.TYPES networkType, int threads) {
+        Draft copy = new Draft(this);
+        copy.annTrainer = trainer;
+        copy.annNetworkType = networkType;
+        copy.annTrainingThreads = threads;
+        return copy.build();
+    }
+
+    /**
+     * @param forgettingFactor discount of older steps by the recursive least squares, in (0, 1]
+     * @param nonNegative      {@code true} to set negative weights of the recursive least squares to zero
+     * @return a copy of this configuration with other recursive least squares settings
+     */
+    @NotNull
+    public ForecastConfiguration withRecursiveLeastSquares(double forgettingFactor, boolean nonNegative) {
+        Draft copy = new Draft(this);
+        copy.rlsForgettingFactor = forgettingFactor;
+        copy.rlsNonNegative = nonNegative;
+        return copy.build();
+    }
+
+    /**
+     * @param strategies strategies evaluated on the same forecasts as the combination strategy, without
+     *                   affecting the combined forecast
+     * @return a copy of this configuration with other shadow strategies
+     */
+    @NotNull
+    public ForecastConfiguration withShadowStrategies(@NotNull List<Strategies> strategies) {
+        Draft copy = new Draft(this);
+        copy.shadowStrategies = unmodifiableCopy(strategies);
+        return copy.build();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    @NotNull
+    public List<ForecastMethod> getForecastMethods() {
+        return forecastMethods;
+    }
+
+    /**
+     * @param index of the forecast method
+     * @return number of data points the method needs for a forecast
+     */
+    public int getDataPoints(int index) {
+        return dataPoints.get(index);
+    }
+
+    /**
+     * Size of the moving window: the largest number of data points over all forecast methods.
+     *
+     * @return maximum number of data points, 0 if there are no forecast methods
+     */
+    public int getMaxDataPoints() {
+        int max = 0;
+        for (int i = 0; i < forecastMethods.size(); i++) {
+            max = Math.max(dataPoints.get(i), max);
+        }
+        return max;
+    }
+
+    @NotNull
+    public Strategies getCombinationStrategy() {
+        return combinationStrategy;
+    }
+
+    public int getP(int i) {
+        return p.get(i);
+    }
+
+    public int getD(int i) {
+        return d.get(i);
+    }
+
+    public int getQ(int i) {
+        return q.get(i);
+    }
+
+    public int getRefitMaxInterval() {
+        return refitMaxInterval;
+    }
+
+    public double getRefitDriftThreshold() {
+        return refitDriftThreshold;
+    }
+
+    public boolean isSpeculativeForecasting() {
+        return speculativeForecasting;
+    }
+
+    public boolean isEnsemblePruning() {
+        return ensemblePruning;
+    }
+
+    public double getPruningMinContribution() {
+        return pruningMinContribution;
+    }
+
+    public int getPruningSuspendSteps() {
+        return pruningSuspendSteps;
+    }
+
+    public boolean isCompactValues() {
+        return compactValues;
+    }
+
+    public boolean isWeightLogging() {
+        return weightLogging;
+    }
+
+    public boolean isSnapshotWindow() {
+        return snapshotWindow;
+    }
+
+    public double getTrimFraction() {
+        return trimFraction;
+    }
+
+    public boolean isAnnOnlineLearning() {
+        return annOnlineLearning;
+    }
+
+    @NotNull
+    public ANNTrainer getAnnTrainer() {
+        return annTrainer;
+    }
+
+    @NotNull
+    public ANNFactory.TYPES getAnnNetworkType() {
+        return annNetworkType;
+    }
+
+    public int getAnnTrainingThreads() {
+        return annTrainingThreads;
+    }
+
+    public double getRlsForgettingFactor() {
+        return rlsForgettingFactor;
+    }
+
+    public boolean isRlsNonNegative() {
+        return rlsNonNegative;
+    }
+
+    /**
+     * @return strategies evaluated on the same forecasts as the combination strategy
+     */
+    @NotNull
+    public List<Strategies> getShadowStrategies() {
+        return shadowStrategies;
+    }
+}
@@ -7,34 +7,82 @@
 
 package forecasting;
 
-import forecasting.errorMeasures.AbstractErrorMeasure;
-import forecasting.errorMeasures.MASE;
 import org.jetbrains.annotations.NotNull;
 import tools.LimitedQueue;
 
-import java.util.Iterator;
-import java.util.List;
 
 /**
  * Each instance of this class belongs exactly to one forecast method.
  * <p>
  * It stores its forecasts and the actual traffic values.
  * Evaluates a method based on its forecast errors.
+ * <p>
+ * The sums of the absolute and squared errors and of the absolute differences of successive actual values are
+ * updated in O(1) when a pair is added or evicted or an actual value arrives, so the error measures read by the
+ * combination strategies do not scan the pairs. The sums are recomputed once per pass through the ring buffer to
+ * remove rounding errors.
  *
  * @author Matthias Sommer
  */
 public class ForecastMethodEvaluator {
     /**
-     * Stores the last mappings of forecasts and actual values.
+     * Number of stored forecast-observation pairs.
+     */
+    private static final int CAPACITY = 10;
+
+    /**
+     * The last mappings of forecasts and actual values in ring buffers, ordered by forecast time.
      */
     @NotNull
-    private final LimitedQueue<ForecastRealValueEntry> forecastActualPairs = new LimitedQueue<>(10);
+    private final float[] forecastTimes = new float[CAPACITY];
     @NotNull
-    private final AbstractErrorMeasure mase = new MASE();
+    private final double[] forecasts = new double[CAPACITY];
+    @NotNull
+    private final double[] actualValues = new double[CAPACITY];
+    @NotNull
+    private final int[] steps = new int[CAPACITY];
+    /**
+     * Position of the oldest pair.
+     */
+    private int head = 0;
+    private int size = 0;
+    /**
+     * Rolling sums over all stored pairs: absolute and squared errors of the pairs with an actual value, and
+     * absolute differences of the actual values of neighbouring pairs.
+     */
+    private double absoluteErrorSum = 0;
+    private double squaredErrorSum = 0;
+    private int knownErrors = 0;
+    private double naiveErrorSum = 0;
+    private int naiveErrors = 0;
 
+    /**
+     * Returns a copy of the stored forecast-observation pairs, oldest first.
+     */
     @NotNull
     public LimitedQueue<ForecastRealValueEntry> getForecastActualPairs() {
-        return forecastActualPairs;
+        LimitedQueue<ForecastRealValueEntry> pairs = new LimitedQueue<>(CAPACITY);
+        for (int i = 0; i < this.size; i++) {
+            int index = index(i);
+            ForecastRealValueEntry entry = new ForecastRealValueEntry(this.forecasts[index], this.forecastTimes[index], this.steps[index]);
+            entry.setActualValue(this.actualValues[index]);
+            pairs.add(entry);
+        }
+        return pairs;
+    }
+
+    /**
+     * @return maximum number of stored forecast-observation pairs
+     */
+    public int getCapacity() {
+        return CAPACITY;
+    }
+
+    /**
+     * Physical position of the i-th oldest pair.
+     */
+    private int index(int i) {
+        return (this.head + i) % CAPACITY;
     }
 
     /**
@@ -46,22 +94,38 @@ public class ForecastMethodEvaluator {
      * @param forecastTime time step the forecast was made for
      * @param forecast
      * @param step         multi- or singlestep forecast
-     * @param timeseries   the  timeseries the forecast is based on
      */
-    final void addForecast(float forecastTime, double forecast, int step, List<Double> timeseries) {
+    final void addForecast(float forecastTime, double forecast, int step) {
         if (Double.isNaN(forecast)) {
             return;
         }
 
         // entry already exists for this time step and this forecast method
-        for (ForecastRealValueEntry storage : this.forecastActualPairs) {
-            if (storage.getForecastTime() == forecastTime) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.forecastTimes[index(i)] == forecastTime) {
                 return;
             }
         }
 
-        ForecastRealValueEntry entry = new ForecastRealValueEntry(forecast, forecastTime, step, timeseries);
-        this.forecastActualPairs.add(entry);
+        int index;
+        if (this.size == CAPACITY) {
+            account(0, -1);
+            index = this.head;
+            this.head = (this.head + 1) % CAPACITY;
+            this.size--;
+            if (this.head == 0) {
+                recomputeSums();
+            }
+            this.size++;
+        } else {
+            index = index(this.size);
+            this.size++;
+        }
+
+        this.forecastTimes[index] = forecastTime;
+        this.forecasts[index] = forecast;
+        this.actualValues[index] = Double.NaN;
+        this.steps[index] = step;
     }
 
     /**
@@ -71,50 +135,220 @@ public class ForecastMethodEvaluator {
      * @param value actual observation
      */
     public final void addActualValueToPair(float time, double value) {
-        Iterator<ForecastRealValueEntry> it = this.forecastActualPairs.descendingIterator();
-        while (it.hasNext()) {
-            ForecastRealValueEntry pair = it.next();
+        for (int i = this.size - 1; i >= 0; i--) {
+            int index = index(i);
 
             // next pairs are only further away in time
-            if (pair.getForecastTime() < time) {
+            if (this.forecastTimes[index] < time) {
                 break;
             }
 
-            if (pair.getForecastTime() == time) {
-                pair.setActualValue(value);
+            if (this.forecastTimes[index] == time) {
+                setActualValue(i, value);
                 break;
             }
         }
     }
 
+    /**
+     * Adds the actual values of several time steps in one pass over the forecast-observation pairs.
+     *
+     * @param times  the time steps of the observations in ascending order
+     * @param values actual observations
+     * @param offset index of the first observation
+     * @param length number of observations
+     */
+    public final void addActualValuesToPairs(@NotNull float[] times, @NotNull double[] values, int offset, int length) {
+        int end = offset + length;
+        int j = offset;
+
+        // both the pairs and the observations are ordered by time
+        for (int i = 0; i < this.size && j < end; i++) {
+            int index = index(i);
+            while (j < end && times[j] < this.forecastTimes[index]) {
+                j++;
+            }
+            if (j < end && times[j] == this.forecastTimes[index]) {
+                setActualValue(i, values[j]);
+            }
+        }
+    }
+
+    private void setActualValue(int i, double value) {
+        int neighbours = this.size;
+        accountActualValue(i, -1, neighbours);
+        this.actualValues[index(i)] = value;
+        accountActualValue(i, 1, neighbours);
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) the error of the i-th pair and its differences to both neighbours.
+     */
+    private void accountActualValue(int i, int sign, int size) {
+        accountError(i, sign);
+        if (i > 0) {
+            accountNaiveError(i, sign);
+        }
+        if (i + 1 < size) {
+            accountNaiveError(i + 1, sign);
+        }
+    }
+
+    /**
+     * Adds or removes the error of the i-th pair and its difference to the following pair, used when the oldest
+     * pair is evicted.
+     */
+    private void account(int i, int sign) {
+        accountError(i, sign);
+        if (i + 1 < this.size) {
+            accountNaiveError(i + 1, sign);
+        }
+    }
+
+    private void accountError(int i, int sign) {
+        int index = index(i);
+        double error = this.actualValues[index] - this.forecasts[index];
+        if (!Double.isNaN(error)) {
+            this.absoluteErrorSum += sign * Math.abs(error);
+            this.squaredErrorSum += sign * error * error;
+            this.knownErrors += sign;
+        }
+    }
+
+    /**
+     * Adds or removes the absolute difference of the actual values of the i-th and the previous pair.
+     */
+    private void accountNaiveError(int i, int sign) {
+        double difference = this.actualValues[index(i)] - this.actualValues[index(i - 1)];
+        if (!Double.isNaN(difference)) {
+            this.naiveErrorSum += sign * Math.abs(difference);
+            this.naiveErrors += sign;
+        }
+    }
+
+    private void recomputeSums() {
+        this.absoluteErrorSum = 0;
+        this.squaredErrorSum = 0;
+        this.knownErrors = 0;
+        this.naiveErrorSum = 0;
+        this.naiveErrors = 0;
+        for (int i = 0; i < this.size; i++) {
+            accountError(i, 1);
+            if (i > 0) {
+                accountNaiveError(i, 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the forecast made for the given time step.
+     *
+     * @param forecastTime time step the forecast was made for
+     * @return forecast or {@code NaN} if no forecast was made for this time step
+     */
+    public double getForecast(float forecastTime) {
+        for (int i = this.size - 1; i >= 0; i--) {
+            int index = index(i);
+            if (this.forecastTimes[index] == forecastTime) {
+                return this.forecasts[index];
+            }
+            if (this.forecastTimes[index] < forecastTime) {
+                break;
+            }
+        }
+        return Double.NaN;
+    }
+
     double lastAbsoluteError() {
-        if (this.forecastActualPairs.size() < 2) {
+        return Math.abs(lastError());
+    }
+
+    /**
+     * @return actual value minus forecast of the latest forecast whose actual value is known, {@code NaN} if none
+     */
+    double lastError() {
+        if (this.size < 2) {
             return Double.NaN;
         }
-        int lastValidEntry = this.forecastActualPairs.size() - 2;
+        int lastValidEntry = index(this.size - 2);
+
+        return this.actualValues[lastValidEntry] - this.forecasts[lastValidEntry];
+    }
+
+    /**
+     * Mean absolute error of the latest forecasts whose actual value is already known.
+     *
+     * @param entries maximum number of forecast-observation pairs to consider
+     * @return mean absolute error or {@code NaN} if no actual value is known yet
+     */
+    public double meanAbsoluteError(int entries) {
+        if (entries >= this.knownErrors) {
+            return this.knownErrors == 0 ? Double.NaN : this.absoluteErrorSum / this.knownErrors;
+        }
+
+        double sum = 0;
+        int count = 0;
+
+        for (int i = this.size - 1; i >= 0 && count < entries; i--) {
+            int index = index(i);
+            if (!Double.isNaN(this.actualValues[index])) {
+                sum += Math.abs(this.forecasts[index] - this.actualValues[index]);
+                count++;
+            }
+        }
+
+        return count == 0 ? Double.NaN : sum / count;
+    }
 
-        double actual = this.forecastActualPairs.get(lastValidEntry).getActualValue();
-        double forecast = this.forecastActualPairs.get(lastValidEntry).getForecast();
+    /**
+     * @return sum of the squared errors of all pairs with a known actual value
+     */
+    public double getSquaredErrorSum() {
+        return this.squaredErrorSum;
+    }
 
-        return Math.abs(actual - forecast);
+    /**
+     * @return number of pairs with a known actual value
+     */
+    public int getKnownErrors() {
+        return this.knownErrors;
     }
 
+    /**
+     * Mean absolute scaled error of all pairs but the newest, whose actual value is usually not known yet. Same
+     * result as {@link forecasting.errorMeasures.MASE} over these pairs, read from the rolling sums in O(1).
+     *
+     * @return MASE or {@code NaN} if less than {@link #getCapacity()} pairs are stored
+     */
     double getMASE() {
-        if (!this.forecastActualPairs.isFull()) {
+        if (this.size < CAPACITY) {
             return Double.NaN;
         }
 
         // -1 because newest entry has no actual value
-        int size = this.forecastActualPairs.size() - 1;
+        double errors = this.absoluteErrorSum;
+        double naiveErrors = this.naiveErrorSum;
+        int naiveCount = this.naiveErrors;
 
-        double[] actual = new double[size];
-        double[] forecasts = new double[size];
-        for (int i = 0; i < size; i++) {
-            ForecastRealValueEntry entry = this.forecastActualPairs.get(i);
-            actual[i] = entry.getActualValue();
-            forecasts[i] = entry.getForecast();
+        int newest = index(CAPACITY - 1);
+        double newestError = this.actualValues[newest] - this.forecasts[newest];
+        if (!Double.isNaN(newestError)) {
+            errors -= Math.abs(newestError);
+        }
+        double newestDifference = this.actualValues[newest] - this.actualValues[index(CAPACITY - 2)];
+        if (!Double.isNaN(newestDifference)) {
+            naiveErrors -= Math.abs(newestDifference);
+            naiveCount--;
         }
 
-        return mase.run(actual, forecasts);
+        if (naiveCount == 0) {
+            return Double.NaN;
+        }
+        int count = naiveCount + 1;
+        double denominator = naiveErrors * count / (count - 1);
+        if (denominator == 0) {
+            denominator = 0.01;
+        }
+        return errors / denominator;
     }
 }
@@ -9,18 +9,24 @@ package forecasting;
 
 import forecasting.combinationStrategies.CombinationModule;
 import forecasting.combinationStrategies.Strategies;
+import forecasting.combinationStrategies.ann.TrainingMetrics;
 import forecasting.forecastMethods.AbstractForecastMethod;
 import forecasting.forecastMethods.ForecastMethod;
 import forecasting.forecastMethods.TimeSeriesStorage;
-import forecasting.forecastMethods.arima.ARIMA;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.rosuda.REngine.REXPMismatchException;
 import org.rosuda.REngine.REngineException;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Acts as the connector between an external module and this library.
@@ -28,6 +34,31 @@ import java.util.List;
  * @author Matthias Sommer
  */
 public class ForecastModule {
+    /**
+     * Deadline of forecasts which may take as long as they need.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    /**
+     * Horizon of the forecasts precomputed in speculative mode.
+     */
+    private static final int SPECULATIVE_HORIZON = 1;
+    private static final double[] NO_WEIGHTS = new double[0];
+    private static final double[] NO_WINDOW = new double[0];
+    /**
+     * Computes the speculative forecasts of all modules in the background.
+     */
+    private static final ExecutorService speculationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "speculative-forecasts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @NotNull
+    private final ForecastConfiguration configuration;
+    /**
+     * Pool of the R sessions of the forecast methods.
+     */
+    @NotNull
+    private final RSessionPool sessionPool;
     @NotNull
     private final CombinationModule combinationModule;
     /**
@@ -36,31 +67,148 @@ public class ForecastModule {
     @NotNull
     private final TimeSeriesStorage timeSeriesStorage;
     @NotNull
-    private final Collection<AbstractForecastMethod> forecastMethods;
+    private final List<AbstractForecastMethod> forecastMethods;
+    /**
+     * Tracks the cost and contribution of each forecast method and suspends those that do not pay off.
+     */
+    @NotNull
+    private final EnsemblePruner ensemblePruner;
     /**
-     * Stores the latest calculated individual forecasts.
+     * State after the latest combined forecast, replaced as a whole so that readers on other threads see
+     * consistent values.
      */
-    private List<Double> forecasts;
+    @NotNull
+    private volatile ForecastSnapshot snapshot = ForecastSnapshot.EMPTY;
     private ForecastMethodEvaluator combinedForecastEvaluator;
+    /**
+     * Evaluators of the combined forecasts of the shadow strategies, indexed like
+     * {@link CombinationModule#getShadowStrategies()}.
+     */
+    @NotNull
+    private final ForecastMethodEvaluator[] shadowEvaluators;
+    /**
+     * Error statistics of the forecast methods, read by the combination strategy.
+     */
+    @NotNull
+    private final ErrorStatistics errorStatistics;
+    /**
+     * If {@code true}, the next one-step forecasts are computed in the background once a value has been added to
+     * the time series and, if they lag behind, to the evaluators.
+     */
+    private boolean speculative;
+    /**
+     * {@code true} if a value was added and its speculation has not been started yet.
+     */
+    private boolean speculationPending = false;
+    /**
+     * Time step of the latest actual value added to the evaluators, {@code NaN} if none.
+     */
+    private float evaluatedTimeStep = Float.NaN;
+    /**
+     * {@code true} while a speculation waits for the evaluators to receive the latest value.
+     */
+    private boolean awaitingEvaluators = false;
+    /**
+     * Number of combined forecasts made from speculative forecasts.
+     */
+    private long speculationHits = 0;
+    /**
+     * Individual one-step forecasts for the current time series, computed or in flight.
+     */
+    private Future<double[]> speculation;
+    /**
+     * Reused buffers of the combination, indexed by forecast method. Speculative forecasts have their own
+     * buffer, at most one speculation is in flight and it is taken before the next one starts.
+     */
+    private final double[] methodForecasts;
+    private final double[] speculativeForecasts;
+    private final boolean[] validForecasts;
+    /**
+     * Number of individual forecasts skipped because the deadline did not leave enough time.
+     */
+    private long deadlineSkips = 0;
 
     /**
      * Initialises the forecast module, the combination method and the forecast methods to be used.
+     * The settings are read from the forecast.properties file into the global {@link DefaultForecastParameters}.
      */
     public ForecastModule() {
-        DefaultForecastParameters.readPropertyFile("");
+        this(readDefaultConfiguration());
+    }
+
+    /**
+     * Initialises the forecast module with its own settings, independent of the global defaults.
+     *
+     * @param configuration the settings of this module
+     */
+    public ForecastModule(@NotNull ForecastConfiguration configuration) {
+        this(configuration, RServeConnection.getSessionPool());
+    }
 
-        this.forecastMethods = new ArrayList<>(DefaultForecastParameters.DEFAULT_FORECAST_METHODS.size());
-        this.forecasts = new ArrayList<>(DefaultForecastParameters.DEFAULT_FORECAST_METHODS.size());
+    /**
+     * Initialises the forecast module with its own settings and the R sessions of the given pool.
+     *
+     * @param configuration the settings of this module
+     * @param sessionPool   pool of the R sessions of the forecast methods
+     */
+    public ForecastModule(@NotNull ForecastConfiguration configuration, @NotNull RSessionPool sessionPool) {
+        this.configuration = configuration;
+        this.sessionPool = sessionPool;
+        this.forecastMethods = new ArrayList<>(configuration.getForecastMethods().size());
+        int methods = configuration.getForecastMethods().size();
+        this.methodForecasts = new double[methods];
+        this.speculativeForecasts = new double[methods];
+        this.validForecasts = new boolean[methods];
 
-        this.combinationModule = new CombinationModule();
+        this.combinationModule = new CombinationModule(configuration);
 
         this.timeSeriesStorage = new TimeSeriesStorage();
+        this.timeSeriesStorage.setCapacity(configuration.getMaxDataPoints(), configuration.isCompactValues());
 
         initForecastMethods();
+        ForecastMethodEvaluator[] evaluators = new ForecastMethodEvaluator[methods];
+        for (int i = 0; i < methods; i++) {
+            evaluators[i] = this.forecastMethods.get(i).getEvaluator();
+        }
+        this.errorStatistics = new ErrorStatistics(evaluators);
+        this.combinationModule.setErrorStatistics(this.errorStatistics);
         this.combinedForecastEvaluator = new ForecastMethodEvaluator();
+        this.shadowEvaluators = new ForecastMethodEvaluator[this.combinationModule.getShadowStrategies().length];
+        for (int i = 0; i < this.shadowEvaluators.length; i++) {
+            this.shadowEvaluators[i] = new ForecastMethodEvaluator();
+        }
+
+        // XCSF and the ANN need a forecast of every method
+        Strategies strategy = configuration.getCombinationStrategy();
+        boolean pruning = configuration.isEnsemblePruning() && strategy != Strategies.XCSF && strategy != Strategies.ANN_WEIGHTING;
+        this.ensemblePruner = new EnsemblePruner(this.forecastMethods, pruning,
+                configuration.getPruningMinContribution(), configuration.getPruningSuspendSteps());
 
-        int capacity = ForecastMethod.getMaxDataPoints(DefaultForecastParameters.DEFAULT_FORECAST_METHODS);
-        this.timeSeriesStorage.setCapacity(capacity);
+        this.speculative = configuration.isSpeculativeForecasting();
+    }
+
+    @NotNull
+    private static ForecastConfiguration readDefaultConfiguration() {
+        DefaultForecastParameters.readPropertyFile("");
+        return ForecastConfiguration.fromDefaults();
+    }
+
+    @NotNull
+    public ForecastConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * In speculative mode each new value schedules the one-step forecasts of all methods in the background, so
+     * that {@link #combinedForecast(float, int, float)} finds them already computed or in flight. If the actual
+     * values are added to the evaluators after the time series, the forecasts start with the update of the
+     * evaluators, because the forecast methods and the {@link EnsemblePruner} read the evaluators. Modules which
+     * update the evaluators first or not at all start them with the new value.
+     *
+     * @param speculative {@code true} to enable speculative forecasting
+     */
+    public void setSpeculative(boolean speculative) {
+        this.speculative = speculative;
     }
 
     /**
@@ -70,22 +218,190 @@ public class ForecastModule {
      * @param value    current actual sensor value
      */
     public final void addValue(float timeStep, double value) {
-        this.timeSeriesStorage.addValue(value);
+        // a running speculation still reads the time series
+        discardSpeculation();
+
+        this.timeSeriesStorage.addValue(timeStep, value);
 
-        if (DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY == Strategies.XCSF) {
+        if (this.configuration.getCombinationStrategy() == Strategies.XCSF) {
             this.combinationModule.rewardForXCSF(timeStep, value);
         }
+
+        requestSpeculation(timeStep);
+    }
+
+    /**
+     * Adds the values of several time steps at once, e.g. to warm up or replay a series. Equivalent to calling
+     * {@link #addValue(float, double)} for every value, but the background forecast is only scheduled once.
+     *
+     * @param timeSteps time steps of the values in ascending order
+     * @param values    actual sensor values
+     */
+    public final void addValues(@NotNull float[] timeSteps, @NotNull double[] values) {
+        checkLengths(timeSteps, values);
+        addValues(timeSteps, values, values.length);
+    }
+
+    /**
+     * Adds the first values of the given arrays, see {@link #addValues(float[], double[])}.
+     *
+     * @param timeSteps time steps of the values in ascending order
+     * @param values    actual sensor values
+     * @param length    number of values to add
+     */
+    public final void addValues(@NotNull float[] timeSteps, @NotNull double[] values, int length) {
+        discardSpeculation();
+
+        if (this.configuration.getCombinationStrategy() == Strategies.XCSF) {
+            // XCSF is rewarded for every value
+            for (int i = 0; i < length; i++) {
+                this.timeSeriesStorage.addValues(timeSteps, values, i, 1);
+                this.combinationModule.rewardForXCSF(timeSteps[i], values[i]);
+            }
+        } else {
+            this.timeSeriesStorage.addValues(timeSteps, values, 0, length);
+        }
+
+        if (length > 0) {
+            requestSpeculation(timeSteps[length - 1]);
+        }
+    }
+
+    /**
+     * Adds the actual values of several time steps to the evaluators, with one pass over the stored forecasts
+     * of each evaluator.
+     *
+     * @param timeSteps time steps of the values in ascending order
+     * @param values    actual sensor values
+     */
+    public final void addValuesToEvaluators(@NotNull float[] timeSteps, @NotNull double[] values) {
+        checkLengths(timeSteps, values);
+        addValuesToEvaluators(timeSteps, values, values.length);
+    }
+
+    /**
+     * Adds the first actual values of the given arrays, see {@link #addValuesToEvaluators(float[], double[])}.
+     *
+     * @param timeSteps time steps of the values in ascending order
+     * @param values    actual sensor values
+     * @param length    number of values to add
+     */
+    public final void addValuesToEvaluators(@NotNull float[] timeSteps, @NotNull double[] values, int length) {
+        discardSpeculation();
+
+        for (AbstractForecastMethod forecastMethod : this.forecastMethods) {
+            forecastMethod.addActualValuesToEvaluator(timeSteps, values, 0, length);
+        }
+        this.combinedForecastEvaluator.addActualValuesToPairs(timeSteps, values, 0, length);
+        for (ForecastMethodEvaluator shadowEvaluator : this.shadowEvaluators) {
+            shadowEvaluator.addActualValuesToPairs(timeSteps, values, 0, length);
+        }
+
+        for (int i = 0; i < length; i++) {
+            this.ensemblePruner.update(timeSteps[i], values[i]);
+        }
+        if (length > 0) {
+            this.errorStatistics.recordActualValues();
+            this.evaluatedTimeStep = timeSteps[length - 1];
+        }
+        this.awaitingEvaluators = false;
+        startSpeculation();
+    }
+
+    private static void checkLengths(@NotNull float[] timeSteps, @NotNull double[] values) {
+        if (timeSteps.length != values.length) {
+            throw new IllegalArgumentException("Number of time steps (" + timeSteps.length
+                    + ") does not match the number of values (" + values.length + ")");
+        }
     }
 
     public final void addValueToEvaluators(float timeStep, double value) {
+        // a running speculation reads the evaluators and the pruner
+        discardSpeculation();
+
         for (AbstractForecastMethod forecastMethod : this.forecastMethods) {
             forecastMethod.addActualValueToEvaluator(timeStep, value);
         }
         this.combinedForecastEvaluator.addActualValueToPair(timeStep, value);
+        for (ForecastMethodEvaluator shadowEvaluator : this.shadowEvaluators) {
+            shadowEvaluator.addActualValueToPair(timeStep, value);
+        }
+        this.ensemblePruner.update(timeStep, value);
+        this.errorStatistics.recordActualValues();
+        this.evaluatedTimeStep = timeStep;
+        this.awaitingEvaluators = false;
+        startSpeculation();
+    }
+
+    /**
+     * Schedules the speculation of a new value. The forecast methods and the {@link EnsemblePruner} read the
+     * evaluators, so if the evaluators have not received the value yet, i.e. they are updated after the time
+     * series, the speculation starts with their update. It starts at once if the evaluators already hold the
+     * value, e.g. if the actual value was added to them before the value was added to the time series, if they
+     * never received a value, or if they missed the previous value as well.
+     *
+     * @param timeStep time step of the new value
+     */
+    private void requestSpeculation(float timeStep) {
+        this.speculationPending = this.speculative;
+        if (!this.speculative) {
+            return;
+        }
+
+        if (this.evaluatedTimeStep < timeStep && !this.awaitingEvaluators) {
+            this.awaitingEvaluators = true;
+        } else {
+            startSpeculation();
+        }
+    }
+
+    /**
+     * Schedules the one-step forecasts of the latest value in the background if it is pending.
+     */
+    private void startSpeculation() {
+        if (this.speculationPending) {
+            this.speculationPending = false;
+            this.speculation = speculationExecutor.submit(
+                    () -> runForecastMethods(SPECULATIVE_HORIZON, NO_DEADLINE, this.speculativeForecasts));
+        }
+    }
+
+    @NotNull
+    public EnsemblePruner getEnsemblePruner() {
+        return ensemblePruner;
+    }
+
+    /**
+     * @return number of individual forecasts skipped because the deadline did not leave enough time
+     */
+    public long getDeadlineSkips() {
+        return deadlineSkips;
+    }
+
+    /**
+     * @return number of combined forecasts made from speculative forecasts
+     */
+    public long getSpeculationHits() {
+        return speculationHits;
     }
 
+    /**
+     * @return the individual forecasts of the latest combined forecast, unmodifiable
+     */
+    @NotNull
     public List<Double> getForecasts() {
-        return forecasts;
+        return this.snapshot.getForecasts();
+    }
+
+    /**
+     * Returns the state after the latest combined forecast. Safe to call from any thread while the module makes
+     * its next forecast.
+     *
+     * @return the latest snapshot, version 0 if no combined forecast has been made yet
+     */
+    @NotNull
+    public ForecastSnapshot getSnapshot() {
+        return this.snapshot;
     }
 
     /**
@@ -98,57 +414,63 @@ public class ForecastModule {
      * @return predicted traffic data
      */
     public final double combinedForecast(final float time, final int horizon, final float timestepForecast) {
-        resetOutperformanceStrategy();
-
-        // only forecasts != NaN except Outperformance
-        List<Double> forecasts = new ArrayList<>(this.forecastMethods.size());
-        List<Double> weights = new ArrayList<>(this.forecastMethods.size());
-        // all forecasts
-        this.forecasts = new ArrayList<>(this.forecastMethods.size());
-
-        for (AbstractForecastMethod forecastMethod : this.forecastMethods) {
-            double forecast = runForecastMethod(forecastMethod, horizon);
-            this.forecasts.add(forecast);
-
-            ForecastMethodEvaluator forecastEvaluator = forecastMethod.getEvaluator();
-            int dataPointsForForecast = ForecastMethod.getMaxDataPoints(DefaultForecastParameters.DEFAULT_FORECAST_METHODS);
+        return combinedForecast(time, horizon, timestepForecast, NO_DEADLINE);
+    }
 
-            if (DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY == Strategies.OUTPERFORMANCE) {
-                forecasts.add(forecast);
-                forecastEvaluator.addForecast(timestepForecast, forecast, horizon, forecastMethod.getSublistOfTimeSeries(dataPointsForForecast));
+    /**
+     * Get a forecast which has to be available before the given deadline, e.g. the next adaptation point of the
+     * traffic light controller. The forecast methods run from the cheapest to the most expensive, measured by
+     * the {@link EnsemblePruner}. Once a valid forecast exists, a method is skipped if its expected duration
+     * exceeds the remaining time.
+     *
+     * @param time             the current simulation time horizon
+     * @param horizon          horizon for which we want the forecast
+     * @param timestepForecast the time the forecast is made for
+     * @param deadline         {@link System#nanoTime()} by which the forecast is needed, {@link #NO_DEADLINE} for none
+     * @return predicted traffic data
+     */
+    public final double combinedForecast(final float time, final int horizon, final float timestepForecast, final long deadline) {
+        // the pruner is only changed once the speculation has finished
+        this.speculationPending = false;
+        double[] individualForecasts = takeSpeculation(horizon);
+        this.ensemblePruner.nextStep();
+        if (individualForecasts == null) {
+            individualForecasts = runForecastMethods(horizon, deadline, this.methodForecasts);
+        } else {
+            this.speculationHits++;
+        }
 
-                double weight = forecastEvaluator.lastAbsoluteError();
-                combinationModule.updateOutperformance(weight, forecastMethod);
-            }
-            // forecast is valid
-            else if (!Double.isNaN(forecast)) {
-                forecasts.add(forecast);
-                forecastEvaluator.addForecast(timestepForecast, forecast, horizon, forecastMethod.getSublistOfTimeSeries(dataPointsForForecast));
-
-                switch (DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY) {
-                    case FORECAST_ERROR:
-                        double weight = forecastEvaluator.getMASE();
-                        weights.add(Math.abs(weight));
-                        break;
-                    case OPTIMALWEIGHTS:
-                        double forecastError = forecastEvaluator.lastAbsoluteError();
-                        if (!Double.isNaN(forecastError)) {
-                            this.combinationModule.updateOptimalWeights(forecastMethod, forecastError);
-                        } else {
-                            forecasts.remove(forecasts.size() - 1);
-                        }
-                        break;
+        // only forecasts != NaN take part, Outperformance needs all of them
+        boolean outperformance = this.configuration.getCombinationStrategy() == Strategies.OUTPERFORMANCE;
+        boolean anyValid = outperformance;
+        for (int i = 0; i < this.forecastMethods.size(); i++) {
+            double forecast = individualForecasts[i];
+            this.validForecasts[i] = outperformance;
+
+            if (outperformance || !Double.isNaN(forecast)) {
+                this.forecastMethods.get(i).getEvaluator().addForecast(timestepForecast, forecast, horizon);
+                // forecast is valid
+                if (!Double.isNaN(forecast)) {
+                    this.validForecasts[i] = true;
+                    anyValid = true;
                 }
             }
         }
+        this.errorStatistics.recordStep();
 
-        if (forecasts.isEmpty()) {
+        if (!anyValid) {
+            publishSnapshot(time, horizon, timestepForecast, individualForecasts, NO_WEIGHTS, Double.NaN);
             return Double.NaN;
         }
 
-        double combinedForecast = this.combinationModule.getCombinedForecast(forecasts, weights, time, timeSeriesStorage);
+        double combinedForecast = this.combinationModule.getCombinedForecast(individualForecasts, this.validForecasts, time,
+                timeSeriesStorage);
 
-        this.combinedForecastEvaluator.addForecast(timestepForecast, combinedForecast, horizon, Collections.emptyList());
+        this.combinedForecastEvaluator.addForecast(timestepForecast, combinedForecast, horizon);
+        for (int i = 0; i < this.shadowEvaluators.length; i++) {
+            this.shadowEvaluators[i].addForecast(timestepForecast, this.combinationModule.getShadowForecast(i), horizon);
+        }
+        publishSnapshot(time, horizon, timestepForecast, individualForecasts, this.combinationModule.getLastWeights(), combinedForecast);
 
         //if combined forecast is NaN --> Fallback to simple average
        /* if (Double.isNaN(combinedForecast)) {
@@ -162,20 +484,151 @@ public class ForecastModule {
         return combinedForecast;
     }
 
-    private double runForecastMethod(AbstractForecastMethod forecastMethod, int horizon) {
+    private void publishSnapshot(float time, int horizon, float timestepForecast, @NotNull double[] forecasts,
+                                 @NotNull double[] weights, double combinedForecast) {
+        // compact windows stay compact in the snapshot, which otherwise would be larger than the window itself
+        double[] window = NO_WINDOW;
+        float[] compactWindow = null;
+        if (this.configuration.isSnapshotWindow()) {
+            if (this.timeSeriesStorage.isCompact()) {
+                compactWindow = this.timeSeriesStorage.toFloatArray();
+            } else {
+                window = this.timeSeriesStorage.toArray();
+            }
+        }
+        this.snapshot = new ForecastSnapshot(this.snapshot.getVersion() + 1, time, horizon, timestepForecast, window,
+                compactWindow, forecasts, weights, combinedForecast);
+    }
+
+    /**
+     * Returns the speculative forecasts if they were made for the requested horizon, otherwise {@code null}.
+     * Waits if they are in flight; if they have not been started yet they are cancelled and the caller computes
+     * the forecasts itself instead of queueing behind other modules.
+     */
+    private double[] takeSpeculation(int horizon) {
+        if (this.speculation == null) {
+            return null;
+        }
+
+        Future<double[]> speculation = this.speculation;
+        this.speculation = null;
+
+        if (speculation.cancel(false)) {
+            return null;
+        }
+
         try {
-            return forecastMethod.runForecast(horizon);
+            double[] forecasts = speculation.get();
+            return horizon == SPECULATIVE_HORIZON ? forecasts : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Speculative forecast - " + e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the speculation or cancels it before its input changes. It is made again at its next start.
+     */
+    private void discardSpeculation() {
+        if (this.speculation != null) {
+            takeSpeculation(SPECULATIVE_HORIZON);
+            this.speculationPending = true;
+        }
+    }
+
+    /**
+     * Runs the forecast methods from the cheapest to the most expensive. Skips a method if a valid forecast
+     * exists and the remaining time until the deadline is shorter than the expected duration of the method.
+     */
+    @NotNull
+    private double[] runForecastMethods(int horizon, long deadline, @NotNull double[] forecasts) {
+        Arrays.fill(forecasts, Double.NaN);
+
+        boolean valid = false;
+        for (int index : this.ensemblePruner.getCostOrder()) {
+            if (deadline != NO_DEADLINE && valid && deadline - System.nanoTime() < this.ensemblePruner.getLatency(index)) {
+                this.deadlineSkips++;
+                continue;
+            }
+
+            forecasts[index] = runForecastMethod(index, horizon);
+            valid |= !Double.isNaN(forecasts[index]);
+        }
+        return forecasts;
+    }
+
+    /**
+     * Runs the forecast method with the given index, unless it is suspended by the {@link EnsemblePruner}.
+     */
+    private double runForecastMethod(int index, int horizon) {
+        if (!this.ensemblePruner.isActive(index)) {
+            return Double.NaN;
+        }
+
+        AbstractForecastMethod forecastMethod = this.forecastMethods.get(index);
+        long start = System.nanoTime();
+        try {
+            return forecastMethod.forecast(horizon);
         } catch (@NotNull REngineException | REXPMismatchException e) {
             System.err.println(forecastMethod.getClass().getSimpleName() + " - " + e.getMessage()
                     + "\t time series: " + this.timeSeriesStorage.getValues());
             return Double.NaN;
+        } finally {
+            this.ensemblePruner.recordLatency(index, System.nanoTime() - start);
         }
     }
 
-    private void resetOutperformanceStrategy() {
-        if (DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY == Strategies.OUTPERFORMANCE) {
-            this.combinationModule.resetOutperformance();
+    /**
+     * @return error statistics of the forecast methods of this module
+     */
+    @NotNull
+    public ErrorStatistics getErrorStatistics() {
+        return this.errorStatistics;
+    }
+
+    /**
+     * @return result of the latest training of the ANN, {@code null} if the strategy is not the ANN
+     */
+    @Nullable
+    public TrainingMetrics getAnnTrainingMetrics() {
+        if (this.configuration.getCombinationStrategy() != Strategies.ANN_WEIGHTING) {
+            return null;
         }
+        return this.combinationModule.getAnnTrainingMetrics();
+    }
+
+    /**
+     * Errors of the shadow strategies, which combine the same forecasts as the combination strategy. Compare
+     * them with {@link #combinedForecastError()}.
+     *
+     * @return MASE of the combined forecasts of each shadow strategy, empty without shadow strategies
+     */
+    @NotNull
+    public Map<Strategies, Double> getShadowErrors() {
+        Strategies[] strategies = this.combinationModule.getShadowStrategies();
+        Map<Strategies, Double> errors = new EnumMap<>(Strategies.class);
+        for (int i = 0; i < strategies.length; i++) {
+            errors.put(strategies[i], this.shadowEvaluators[i].getMASE());
+        }
+        return errors;
+    }
+
+    /**
+     * @param strategy a shadow strategy
+     * @return evaluator of the combined forecasts of the shadow strategy, {@code null} if it is not in the shadow
+     */
+    @Nullable
+    public ForecastMethodEvaluator getShadowEvaluator(@NotNull Strategies strategy) {
+        Strategies[] strategies = this.combinationModule.getShadowStrategies();
+        for (int i = 0; i < strategies.length; i++) {
+            if (strategies[i] == strategy) {
+                return this.shadowEvaluators[i];
+            }
+        }
+        return null;
     }
 
     public double combinedForecastError() {
@@ -183,24 +636,12 @@ public class ForecastModule {
     }
 
     private void initForecastMethods() {
-        List<ForecastMethod> forecastMethods = DefaultForecastParameters.DEFAULT_FORECAST_METHODS;
+        List<ForecastMethod> forecastMethods = this.configuration.getForecastMethods();
 
         for (int i = 0; i < forecastMethods.size(); i++) {
-            ForecastMethod method = forecastMethods.get(i);
-            int size = DefaultForecastParameters.FORECAST_METHOD_DATA_POINTS.get(i);
-            AbstractForecastMethod forecastMethod = method.create(this.timeSeriesStorage, size);
-
-            if (forecastMethod instanceof ARIMA) {
-                ((ARIMA) forecastMethod).setP(DefaultForecastParameters.getP(i));
-                ((ARIMA) forecastMethod).setD(DefaultForecastParameters.getD(i));
-                ((ARIMA) forecastMethod).setQ(DefaultForecastParameters.getQ(i));
-            }
-
+            AbstractForecastMethod forecastMethod = forecastMethods.get(i).create(this.timeSeriesStorage, this.configuration, i);
+            forecastMethod.setSessionPool(this.sessionPool);
             this.forecastMethods.add(forecastMethod);
-
-            if (DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY == Strategies.OUTPERFORMANCE) {
-                this.combinationModule.addMethodForOutperformance(forecastMethod);
-            }
         }
     }
 }
@@ -9,18 +9,12 @@ package forecasting;
 
 import forecasting.forecastMethods.AbstractForecastMethod;
 
-import java.util.List;
-
 /**
  * Stores a forecast with his associated time step and the actual value for later evaluation of the {@link AbstractForecastMethod}.
  *
  * @author Matthias Sommer
  */
 public class ForecastRealValueEntry {
-    /**
-     * The time series on which the forecast was calculated.
-     */
-    private final List<Double> timeseries;
     /**
      * Not the time step when forecast was generated, but the time step for which the forecast was made.
      */
@@ -38,17 +32,12 @@ public class ForecastRealValueEntry {
      */
     private double actualValue = Double.NaN;
 
-    public ForecastRealValueEntry(double forecast, float forecastTime, int step, List<Double> timeseries) {
+    public ForecastRealValueEntry(double forecast, float forecastTime, int step) {
         this.forecast = forecast;
         this.forecastTime = forecastTime;
-        this.timeseries = timeseries;
         this.step = step;
     }
 
-    public List<Double> getTimeseries() {
-        return this.timeseries;
-    }
-
     public final double getActualValue() {
         return this.actualValue;
     }
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tools.IngestionQueue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages the forecasts of many time series (e.g. traffic detectors) in one JVM.
+ * <p>
+ * The configuration is read once, every series gets its own {@link ForecastModule} created on its first value.
+ * Per tick the combined forecasts of all series which received a value since their last forecast are computed
+ * in parallel on a work-stealing {@link ForkJoinPool}, so series with expensive methods (e.g. TBATS) do not
+ * hold up the others. All series share the R sessions of the service's own {@link RSessionPool}, its size is
+ * the cap on concurrent R calls of the service. A worker waiting for a session is compensated by the pool, so
+ * series with native methods keep running meanwhile. With {@link ExecutionMode#VIRTUAL_THREADS} each series step
+ * runs on its own virtual thread instead.
+ *
+ * @author Matthias Sommer
+ */
+public class ForecastService {
+    @NotNull
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    /**
+     * Series which received a value since their last forecast.
+     */
+    @NotNull
+    private final Set<String> dueSeries = ConcurrentHashMap.newKeySet();
+    @NotNull
+    private final ExecutorService executor;
+    @NotNull
+    private final ForecastConfiguration configuration;
+    @NotNull
+    private final DeadlineScheduler deadlineScheduler;
+    /**
+     * R sessions of the series of this service, independent of other services.
+     */
+    @NotNull
+    private final RSessionPool sessionPool;
+    private volatile int ingestionCapacity = 1024;
+    @NotNull
+    private volatile IngestionQueue.OverflowPolicy overflowPolicy = IngestionQueue.OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * @param propertyFolder folder of the forecast.properties file
+     * @param threads        number of worker threads and R sessions
+     */
+    public ForecastService(String propertyFolder, int threads) {
+        this(ForecastConfiguration.readPropertyFile(propertyFolder), threads, threads);
+    }
+
+    /**
+     * @param configuration settings of the forecast modules of all series
+     * @param threads       parallelism of the worker pool
+     * @param maxRCalls     maximum number of concurrent R calls, i.e. R sessions
+     */
+    public ForecastService(@NotNull ForecastConfiguration configuration, int threads, int maxRCalls) {
+        this(configuration, threads, maxRCalls, ExecutionMode.WORK_STEALING);
+    }
+
+    /**
+     * @param configuration settings of the forecast modules of all series
+     * @param threads       parallelism of the worker pool, in {@link ExecutionMode#VIRTUAL_THREADS} only used on
+     *                      runtimes without virtual threads
+     * @param maxRCalls     maximum number of concurrent R calls, i.e. R sessions
+     * @param mode          how the steps of the series are run
+     */
+    public ForecastService(@NotNull ForecastConfiguration configuration, int threads, int maxRCalls, @NotNull ExecutionMode mode) {
+        this.configuration = configuration;
+        this.sessionPool = new RSessionPool(maxRCalls);
+        this.executor = mode.createExecutor(threads);
+        this.deadlineScheduler = new DeadlineScheduler(this.executor, Math.max(1, maxRCalls));
+    }
+
+    /**
+     * Adds the actual value of a series. It is stored in the time series and evaluates the forecast made for
+     * this time step.
+     *
+     * @param seriesId identifier of the series, e.g. the detector id
+     * @param timeStep current time step
+     * @param value    current actual value
+     */
+    public void addValue(@NotNull String seriesId, float timeStep, double value) {
+        Series series = getOrCreateSeries(seriesId);
+        series.lock.lock();
+        try {
+            series.drain();
+            series.module.addValue(timeStep, value);
+            series.module.addValueToEvaluators(timeStep, value);
+        } finally {
+            series.lock.unlock();
+        }
+        this.dueSeries.add(seriesId);
+    }
+
+    /**
+     * Queues the actual value of a series without waiting for its forecasts. The queued values are added to the
+     * forecast module by the worker of the next forecast of the series. Values of one series have to be offered
+     * by one thread at a time.
+     *
+     * @param seriesId identifier of the series, e.g. the detector id
+     * @param timeStep current time step
+     * @param value    current actual value
+     * @return {@code false} if the queue of the series is full and rejects values
+     */
+    public boolean offer(@NotNull String seriesId, float timeStep, double value) {
+        Series series = getOrCreateSeries(seriesId);
+        boolean queued = series.queue.offer(timeStep, value);
+        if (queued) {
+            this.dueSeries.add(seriesId);
+        }
+        return queued;
+    }
+
+    /**
+     * Sets the queue of the series created from now on, see {@link #offer(String, float, double)}.
+     *
+     * @param capacity maximum number of queued values per series
+     * @param policy   what happens to a value offered to a full queue
+     */
+    public void setIngestionQueue(int capacity, @NotNull IngestionQueue.OverflowPolicy policy) {
+        this.ingestionCapacity = capacity;
+        this.overflowPolicy = policy;
+    }
+
+    @NotNull
+    private Series getOrCreateSeries(@NotNull String seriesId) {
+        Series series = this.series.get(seriesId);
+        if (series != null) {
+            return series;
+        }
+        return this.series.computeIfAbsent(seriesId, id -> new Series(new ForecastModule(this.configuration, this.sessionPool),
+                new IngestionQueue(this.ingestionCapacity, this.overflowPolicy)));
+    }
+
+    /**
+     * Adds the actual values of several time steps of a series, e.g. to warm up or replay it.
+     *
+     * @param seriesId  identifier of the series, e.g. the detector id
+     * @param timeSteps time steps of the values in ascending order
+     * @param values    actual values
+     */
+    public void addValues(@NotNull String seriesId, @NotNull float[] timeSteps, @NotNull double[] values) {
+        Series series = getOrCreateSeries(seriesId);
+        series.lock.lock();
+        try {
+            series.drain();
+            series.module.addValues(timeSteps, values);
+            series.module.addValuesToEvaluators(timeSteps, values);
+        } finally {
+            series.lock.unlock();
+        }
+        this.dueSeries.add(seriesId);
+    }
+
+    /**
+     * Computes the combined forecasts of all series which received a value since their last forecast.
+     *
+     * @param time             the current time step
+     * @param horizon          horizon for which we want the forecast
+     * @param timestepForecast the time the forecast is made for
+     * @return combined forecast per series id
+     */
+    @NotNull
+    public Map<String, Double> forecast(float time, int horizon, float timestepForecast) {
+        return forecastTick(time, horizon, timestepForecast).getForecasts();
+    }
+
+    /**
+     * Computes the combined forecasts of all series which received a value since their last forecast and
+     * measures the computation time of each series.
+     *
+     * @param time             the current time step
+     * @param horizon          horizon for which we want the forecast
+     * @param timestepForecast the time the forecast is made for
+     * @return forecasts and durations of the tick
+     */
+    @NotNull
+    public ForecastTick forecastTick(float time, int horizon, float timestepForecast) {
+        long start = System.nanoTime();
+
+        List<String> ids = new ArrayList<>(this.dueSeries);
+        this.dueSeries.removeAll(ids);
+
+        List<Future<Double>> tasks = new ArrayList<>(ids.size());
+        long[] durations = new long[ids.size()];
+
+        for (int i = 0; i < ids.size(); i++) {
+            Series series = this.series.get(ids.get(i));
+            int index = i;
+
+            tasks.add(this.executor.submit(() -> {
+                long taskStart = System.nanoTime();
+                series.lock.lock();
+                try {
+                    series.drain();
+                    return series.module.combinedForecast(time, horizon, timestepForecast);
+                } finally {
+                    series.lock.unlock();
+                    durations[index] = System.nanoTime() - taskStart;
+                }
+            }));
+        }
+
+        Map<String, Double> forecasts = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            forecasts.put(ids.get(i), getResult(ids.get(i), tasks.get(i)));
+        }
+
+        // the durations are visible, all tasks have completed
+        Map<String, Long> durationMap = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            durationMap.put(ids.get(i), durations[i]);
+        }
+        return new ForecastTick(forecasts, durationMap, System.nanoTime() - start);
+    }
+
+    /**
+     * Schedules the combined forecast of one series which is needed before a deadline, e.g. the next adaptation
+     * point of its intersection. Requests are run earliest-deadline-first; within a request cheap forecast
+     * methods run first and expensive ones only if the remaining time allows.
+     *
+     * @param seriesId         identifier of the series
+     * @param time             the current time step
+     * @param horizon          horizon for which we want the forecast
+     * @param timestepForecast the time the forecast is made for
+     * @param deadline         {@link System#nanoTime()} by which the forecast is needed
+     * @return the combined forecast, {@code NaN} if the series is unknown or the forecast failed
+     */
+    @NotNull
+    public CompletableFuture<Double> forecastBefore(@NotNull String seriesId, float time, int horizon,
+                                                    float timestepForecast, long deadline) {
+        Series series = this.series.get(seriesId);
+        if (series == null) {
+            return CompletableFuture.completedFuture(Double.NaN);
+        }
+        this.dueSeries.remove(seriesId);
+
+        return this.deadlineScheduler.schedule(deadline, requestDeadline -> {
+            series.lock.lock();
+            try {
+                series.drain();
+                return series.module.combinedForecast(time, horizon, timestepForecast, requestDeadline);
+            } finally {
+                series.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * @return the scheduler of {@link #forecastBefore(String, float, int, float, long)} with its counters of
+     * completed requests and missed deadlines
+     */
+    @NotNull
+    public DeadlineScheduler getDeadlineScheduler() {
+        return deadlineScheduler;
+    }
+
+    /**
+     * @return the R sessions of this service, e.g. to read the number of active sessions
+     */
+    @NotNull
+    public RSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    private double getResult(String id, Future<Double> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        } catch (ExecutionException e) {
+            System.err.println("Forecast of series " + id + " - " + e.getCause());
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @param seriesId identifier of the series
+     * @return the forecast module of the series or {@code null} if it has not received a value yet
+     */
+    @Nullable
+    public ForecastModule getModule(@NotNull String seriesId) {
+        Series series = this.series.get(seriesId);
+        return series == null ? null : series.module;
+    }
+
+    /**
+     * @param seriesId identifier of the series
+     * @return the queue of the series with its depth metrics or {@code null} if the series does not exist
+     */
+    @Nullable
+    public IngestionQueue getIngestionQueue(@NotNull String seriesId) {
+        Series series = this.series.get(seriesId);
+        return series == null ? null : series.queue;
+    }
+
+    /**
+     * @return number of values queued over all series
+     */
+    public long getQueuedValues() {
+        long queued = 0;
+        for (Series series : this.series.values()) {
+            queued += series.queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * @return number of values dropped or rejected by full queues over all series
+     */
+    public long getLostValues() {
+        long lost = 0;
+        for (Series series : this.series.values()) {
+            lost += series.queue.getDropped() + series.queue.getRejected();
+        }
+        return lost;
+    }
+
+    /**
+     * Returns the number of managed series.
+     */
+    public int size() {
+        return this.series.size();
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Forecast module of a series with the lock serialising its steps and the queue of its offered values.
+     * Unlike a monitor, waiting for the lock or holding it during an R call does not pin a virtual thread to its
+     * carrier.
+     */
+    private static class Series {
+        private static final int DRAIN_BATCH = 256;
+
+        @NotNull
+        final ForecastModule module;
+        @NotNull
+        final ReentrantLock lock = new ReentrantLock();
+        @NotNull
+        final IngestionQueue queue;
+        @NotNull
+        private final float[] drainedTimeSteps = new float[DRAIN_BATCH];
+        @NotNull
+        private final double[] drainedValues = new double[DRAIN_BATCH];
+
+        Series(@NotNull ForecastModule module, @NotNull IngestionQueue queue) {
+            this.module = module;
+            this.queue = queue;
+        }
+
+        /**
+         * Adds the queued values to the module. Must be called with the lock held.
+         */
+        void drain() {
+            int count;
+            do {
+                count = this.queue.drainTo(this.drainedTimeSteps, this.drainedValues);
+                if (count > 0) {
+                    this.module.addValues(this.drainedTimeSteps, this.drainedValues, count);
+                    this.module.addValuesToEvaluators(this.drainedTimeSteps, this.drainedValues, count);
+                }
+            } while (count == DRAIN_BATCH);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable state of a {@link ForecastModule} after one combined forecast: the moving window the forecasts were
+ * based on, the individual forecasts, the combination weights and the combined forecast.
+ * <p>
+ * The module publishes a new snapshot after every combined forecast, so any number of threads (e.g. dashboards)
+ * can read consistent values without locking the module. The version increases with every published snapshot.
+ * Modules with compact values keep the window with single precision, modules configured without snapshot window
+ * keep none.
+ *
+ * @author Matthias Sommer
+ */
+public final class ForecastSnapshot {
+    /**
+     * Snapshot of a module which has not made a combined forecast yet.
+     */
+    static final ForecastSnapshot EMPTY = new ForecastSnapshot(0, Float.NaN, 0, Float.NaN, new double[0], null,
+            new double[0], new double[0], Double.NaN);
+
+    private final long version;
+    private final float time;
+    private final int horizon;
+    private final float timestepForecast;
+    /**
+     * Moving window, empty if the window is compact or not kept.
+     */
+    @NotNull
+    private final double[] window;
+    /**
+     * Moving window with single precision, {@code null} unless the module stores compact values.
+     */
+    @Nullable
+    private final float[] compactWindow;
+    @NotNull
+    private final List<Double> forecasts;
+    @NotNull
+    private final List<Double> weights;
+    private final double combinedForecast;
+
+    ForecastSnapshot(long version, float time, int horizon, float timestepForecast, @NotNull double[] window,
+                     @Nullable float[] compactWindow, @NotNull double[] forecasts, @NotNull double[] weights,
+                     double combinedForecast) {
+        this.version = version;
+        this.time = time;
+        this.horizon = horizon;
+        this.timestepForecast = timestepForecast;
+        this.window = window;
+        this.compactWindow = compactWindow;
+        this.forecasts = toList(forecasts);
+        this.weights = toList(weights);
+        this.combinedForecast = combinedForecast;
+    }
+
+    @NotNull
+    private static List<Double> toList(@NotNull double[] values) {
+        if (values.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return number of the combined forecast, 0 if none has been made yet
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return time step the forecast was made at
+     */
+    public float getTime() {
+        return time;
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * @return time step the forecast was made for
+     */
+    public float getTimestepForecast() {
+        return timestepForecast;
+    }
+
+    /**
+     * @return copy of the moving window, oldest value first, empty if the module keeps no window in its snapshots
+     */
+    @NotNull
+    public double[] getWindow() {
+        if (compactWindow == null) {
+            return window.clone();
+        }
+
+        double[] copy = new double[compactWindow.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = compactWindow[i];
+        }
+        return copy;
+    }
+
+    public int getWindowSize() {
+        return compactWindow != null ? compactWindow.length : window.length;
+    }
+
+    /**
+     * @param index position in the moving window, 0 is the oldest value
+     * @return the value
+     */
+    public double getWindowValue(int index) {
+        return compactWindow != null ? compactWindow[index] : window[index];
+    }
+
+    /**
+     * @return forecasts of all forecast methods in their configured order, {@code NaN} if a method made none
+     */
+    @NotNull
+    public List<Double> getForecasts() {
+        return forecasts;
+    }
+
+    /**
+     * @return weights of the combination strategy, empty if the strategy does not use weights
+     */
+    @NotNull
+    public List<Double> getWeights() {
+        return weights;
+    }
+
+    public double getCombinedForecast() {
+        return combinedForecast;
+    }
+}
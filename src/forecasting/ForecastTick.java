@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Results of one tick of the {@link ForecastService}: the combined forecast and the computation time of every
+ * series which was due, and the elapsed time of the whole tick.
+ *
+ * @author Matthias Sommer
+ */
+public class ForecastTick {
+    @NotNull
+    private final Map<String, Double> forecasts;
+    @NotNull
+    private final Map<String, Long> durations;
+    private final long elapsedNanos;
+
+    ForecastTick(@NotNull Map<String, Double> forecasts, @NotNull Map<String, Long> durations, long elapsedNanos) {
+        this.forecasts = Collections.unmodifiableMap(forecasts);
+        this.durations = Collections.unmodifiableMap(durations);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return combined forecast per series id, {@code NaN} if the forecast failed
+     */
+    @NotNull
+    public Map<String, Double> getForecasts() {
+        return forecasts;
+    }
+
+    /**
+     * @return computation time of the combined forecast in nanoseconds per series id
+     */
+    @NotNull
+    public Map<String, Long> getDurations() {
+        return durations;
+    }
+
+    /**
+     * @return wall clock time of the tick in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return id of the series with the longest computation time, {@code null} if no series was due
+     */
+    @Nullable
+    public String getSlowestSeries() {
+        String slowest = null;
+        long max = -1;
+        for (Map.Entry<String, Long> entry : this.durations.entrySet()) {
+            if (entry.getValue() > max) {
+                max = entry.getValue();
+                slowest = entry.getKey();
+            }
+        }
+        return slowest;
+    }
+}
@@ -23,9 +23,17 @@ public class RServeConnection {
      * Unique identifier to use for variable names in R.
      */
     private static final AtomicInteger nextVarId = new AtomicInteger(1);
-    private static int PORT = 6311;
+    private static int PORT = Integer.getInteger("forecasting.rservePort", 6311);
     // maps thread-ids to R-threads
     private static Map<Long, RConnection> threads;
+    // sessions opened for the session pool
+    private static final List<RConnection> sessions = new ArrayList<>();
+    // port of the Rserve instance which forks the sessions on Unix, -1 if not started yet
+    private static int unixSessionPort = -1;
+    /**
+     * Sessions shared by all forecast methods, one session by default.
+     */
+    private static final RSessionPool sessionPool = new RSessionPool(1);
     // Holds the main Rserve process. Can be used to shutdown the main process.
     // private static List<Process> rServeProcesses;
 
@@ -38,6 +46,49 @@ public class RServeConnection {
         return String.format("var_%s", nextVarId.getAndIncrement());
     }
 
+    /**
+     * Returns the pool of R sessions used by the forecast methods.
+     *
+     * @return session pool
+     */
+    public static RSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Opens a new R session which is not bound to a thread.
+     * Unix: one Rserve instance forks a new R process for each connection.
+     * Windows: each session needs its own Rserve process listening on a different port.
+     *
+     * @return the new session or {@code null} if R cannot be started
+     */
+    static synchronized RConnection openSession() {
+        try {
+            int port = PORT;
+            if (!SystemUtils.IS_OS_UNIX || unixSessionPort < 0) {
+                System.out.println("Start Rserve on port " + port);
+                createRserveProcess(port);
+                PORT++;
+                if (SystemUtils.IS_OS_UNIX) {
+                    unixSessionPort = port;
+                }
+            } else {
+                port = unixSessionPort;
+            }
+
+            RConnection connection = new RConnection(HOST, port);
+            init(connection);
+            sessions.add(connection);
+            return connection;
+        } catch (RserveException e) {
+            System.err.println("Rserve: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cannot start Rserve: " + e.getMessage());
+            return null;
+        }
+    }
+
     public static synchronized RConnection getConnection() {
         if (threads == null) {
             threads = new HashMap<>();
@@ -89,6 +140,10 @@ public class RServeConnection {
 
     public static void tearDown() {
         try {
+            closeSessions();
+            if (threads == null) {
+                return;
+            }
             for (RConnection connection : threads.values()) {
                 connection.close();
                 connection.shutdown();
@@ -100,6 +155,19 @@ public class RServeConnection {
         }
     }
 
+    private static synchronized void closeSessions() {
+        for (RConnection connection : sessions) {
+            try {
+                connection.shutdown();
+            } catch (RserveException e) {
+                // Unix: the forking Rserve instance was already shut down by another session
+            }
+            connection.close();
+        }
+        sessions.clear();
+        unixSessionPort = -1;
+    }
+
     /**
      * Load the necessary R packages.
      * TODO: check if they are still all necessary
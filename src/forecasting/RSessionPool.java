@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting;
+
+import org.jetbrains.annotations.Nullable;
+import org.rosuda.REngine.Rserve.RConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of R sessions shared by forecast modules. Modules use the pool of {@link RServeConnection} unless
+ * they are created with their own, e.g. by a {@link ForecastService}.
+ * <p>
+ * A session is used by one forecast at a time, the number of sessions limits the number of concurrent R calls.
+ * Sessions are opened on demand. Sessions keep no state of a forecast method between its forecasts, fitted models
+ * (see {@link forecasting.forecastMethods.RefitScheduler}) are passed to the session of each forecast.
+ *
+ * @author Matthias Sommer
+ */
+public class RSessionPool {
+    private final List<RConnection> sessions = new ArrayList<>();
+    private final List<RConnection> idle = new ArrayList<>();
+    /**
+     * One permit per session that may be used, i.e. the number of further concurrent R calls. Waiting on a
+     * semaphore does not pin a virtual thread to its carrier, unlike waiting on a monitor.
+     */
+    private final ResizableSemaphore permits;
+    private int maxSessions;
+    /**
+     * Set when R could not be started, so that forecasts fail fast instead of trying to start R again.
+     */
+    private volatile boolean unavailable = false;
+
+    RSessionPool(int maxSessions) {
+        this.maxSessions = maxSessions;
+        this.permits = new ResizableSemaphore(maxSessions);
+    }
+
+    /**
+     * Sets the maximum number of R sessions, i.e. the maximum number of concurrent R calls.
+     * Already opened sessions are kept.
+     *
+     * @param maxSessions maximum number of sessions
+     */
+    public synchronized void setMaxSessions(int maxSessions) {
+        int delta = maxSessions - this.maxSessions;
+        if (delta > 0) {
+            this.permits.release(delta);
+        } else if (delta < 0) {
+            this.permits.reducePermits(-delta);
+        }
+        this.maxSessions = maxSessions;
+    }
+
+    public synchronized int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Returns the number of sessions in use.
+     */
+    public synchronized int getActiveSessions() {
+        return sessions.size() - idle.size();
+    }
+
+    /**
+     * Takes an idle session, opens a new one or waits until a session is released.
+     *
+     * @return session or {@code null} if no session can be opened
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Nullable
+    public RConnection acquire() throws InterruptedException {
+        if (isUnavailable()) {
+            return null;
+        }
+        awaitPermit();
+
+        // with a permit either a session is idle or a new one may be opened
+        synchronized (this) {
+            if (!idle.isEmpty()) {
+                return idle.remove(idle.size() - 1);
+            }
+            if (unavailable && sessions.isEmpty()) {
+                this.permits.release();
+                return null;
+            }
+        }
+
+        // opening a session starts R, do not block the pool meanwhile
+        RConnection session = null;
+        try {
+            session = RServeConnection.openSession();
+        } finally {
+            synchronized (this) {
+                if (session != null) {
+                    sessions.add(session);
+                } else {
+                    unavailable = true;
+                    this.permits.release();
+                }
+            }
+        }
+        return session;
+    }
+
+    private synchronized boolean isUnavailable() {
+        return unavailable && sessions.isEmpty();
+    }
+
+    /**
+     * Waits for a permit. Workers of a {@link ForkJoinPool} are compensated meanwhile, so the pool keeps
+     * running tasks which do not need R.
+     */
+    private void awaitPermit() throws InterruptedException {
+        if (this.permits.tryAcquire()) {
+            return;
+        }
+
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean acquired = false;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!this.acquired) {
+                    permits.acquire();
+                    this.acquired = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (!this.acquired) {
+                    this.acquired = permits.tryAcquire();
+                }
+                return this.acquired;
+            }
+        });
+    }
+
+    /**
+     * Returns a session to the pool.
+     *
+     * @param session acquired before
+     */
+    public void release(@Nullable RConnection session) {
+        if (session != null) {
+            synchronized (this) {
+                idle.add(session);
+            }
+            this.permits.release();
+        }
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -7,12 +7,15 @@
 
 package forecasting.combinationStrategies;
 
-import forecasting.DefaultForecastParameters;
+import forecasting.ErrorStatistics;
+import forecasting.ForecastConfiguration;
+import forecasting.combinationStrategies.ann.ANNWeighting;
+import forecasting.combinationStrategies.ann.TrainingMetrics;
 import forecasting.combinationStrategies.xcsf.XCSF;
-import forecasting.forecastMethods.AbstractForecastMethod;
 import forecasting.forecastMethods.TimeSeriesStorage;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,59 +23,154 @@ import java.util.List;
  */
 public class CombinationModule {
     private CombinationStrategy strategy;
+    /**
+     * Number of forecast methods of the forecast module.
+     */
+    private final int numberOfMethods;
+    /**
+     * Strategies combining the same forecasts as the strategy, only for their evaluation. A failing shadow
+     * strategy is dropped.
+     */
+    @NotNull
+    private final Strategies[] shadowTypes;
+    @NotNull
+    private final CombinationStrategy[] shadows;
+    /**
+     * Combined forecast of each shadow strategy in the latest step.
+     */
+    @NotNull
+    private final double[] shadowForecasts;
+    /**
+     * Valid methods with a forecast != NaN, the mask of the shadow strategies. The mask of an Outperformance
+     * strategy also contains the methods without a forecast, the shadows must not combine those.
+     */
+    @NotNull
+    private final boolean[] shadowValid;
 
     /**
-     * Initialise the chosen combination strategy.
+     * Initialise the combination strategy of the configuration.
+     *
+     * @param configuration the configuration of the forecast module
      */
-    public CombinationModule() {
-        this.strategy = DefaultForecastParameters.FORECAST_COMBINATION_STRATEGY.create();
-        this.strategy.initWeightPrinter();
+    public CombinationModule(@NotNull ForecastConfiguration configuration) {
+        this.numberOfMethods = configuration.getForecastMethods().size();
+        this.strategy = configuration.getCombinationStrategy().create(configuration);
+        if (configuration.isWeightLogging()) {
+            this.strategy.initWeightPrinter();
+        }
+
+        List<Strategies> shadowTypes = new ArrayList<>();
+        for (Strategies shadow : configuration.getShadowStrategies()) {
+            // XCSF learns from the rewards of the module, it cannot run in the shadow
+            if (shadow != configuration.getCombinationStrategy() && shadow != Strategies.XCSF && !shadowTypes.contains(shadow)) {
+                shadowTypes.add(shadow);
+            }
+        }
+        this.shadowTypes = shadowTypes.toArray(new Strategies[0]);
+        this.shadows = new CombinationStrategy[this.shadowTypes.length];
+        for (int i = 0; i < this.shadows.length; i++) {
+            this.shadows[i] = this.shadowTypes[i].create(configuration);
+        }
+        this.shadowForecasts = new double[this.shadows.length];
+        this.shadowValid = new boolean[this.numberOfMethods];
     }
 
     public void rewardForXCSF(float timeStep, double value) {
         ((XCSF) strategy).receiveReward(timeStep, value);
     }
 
-    public void resetOutperformance() {
-        ((Outperformance) this.strategy).reset();
-    }
-
-    public void updateOutperformance(double weight, AbstractForecastMethod forecastMethod) {
-        ((Outperformance) this.strategy).update(weight, forecastMethod);
+    /**
+     * @return result of the latest batch training of the ANN
+     */
+    @NotNull
+    public TrainingMetrics getAnnTrainingMetrics() {
+        return ((ANNWeighting) strategy).getTrainingMetrics();
     }
 
-    public void updateOptimalWeights(AbstractForecastMethod forecastMethod, double forecastError) {
-        ((OptimalWeights) this.strategy).addForecastMethod(forecastMethod);
-        ((OptimalWeights) this.strategy).addForecastError(forecastMethod, forecastError);
+    /**
+     * @param errorStatistics error statistics of the forecast methods, read by the strategy
+     */
+    public void setErrorStatistics(@NotNull ErrorStatistics errorStatistics) {
+        this.strategy.setErrorStatistics(errorStatistics);
+        for (CombinationStrategy shadow : this.shadows) {
+            shadow.setErrorStatistics(errorStatistics);
+        }
     }
 
     /**
-     * Calculate a combined forecast based on the chosen method, the forecasts and their respective weights.
+     * Calculate a combined forecast based on the chosen method and the forecasts.
+     * The arrays are indexed by forecast method and may be reused by the caller for the next step.
      *
-     * @param forecasts  list of forecast values
-     * @param weights    list of combination weights
+     * @param forecasts  forecast of each method
+     * @param valid      {@code true} for the methods which take part in the combination
      * @param time       step
      * @param timeSeries moving window of actual values
      * @return combined forecast
      */
-    public double getCombinedForecast(@NotNull List<Double> forecasts, @NotNull List<Double> weights,
-                                      float time, TimeSeriesStorage timeSeries) {
-        strategy.setForecasts(forecasts);
-        strategy.setWeights(weights);
+    public double getCombinedForecast(@NotNull double[] forecasts, @NotNull boolean[] valid, float time,
+                                      TimeSeriesStorage timeSeries) {
+        combineShadows(forecasts, valid, time, timeSeries);
+
         strategy.setTime(time);
         strategy.setLastTimeseries(timeSeries);
+        strategy.clearLastWeights();
 
         if (strategy instanceof XCSF) {
             // not yet enough forecasts available
-            if (forecasts.size() != DefaultForecastParameters.DEFAULT_FORECAST_METHODS.size()) {
+            if (CombinationStrategy.countValid(valid, this.numberOfMethods) != this.numberOfMethods) {
                 return Double.NaN;
             }
         }
 
-        return strategy.run();
+        return strategy.combine(forecasts, valid, this.numberOfMethods);
+    }
+
+    private void combineShadows(@NotNull double[] forecasts, @NotNull boolean[] valid, float time,
+                                TimeSeriesStorage timeSeries) {
+        for (int i = 0; i < this.numberOfMethods; i++) {
+            this.shadowValid[i] = valid[i] && !Double.isNaN(forecasts[i]);
+        }
+
+        for (int i = 0; i < this.shadows.length; i++) {
+            CombinationStrategy shadow = this.shadows[i];
+            this.shadowForecasts[i] = Double.NaN;
+            if (shadow == null) {
+                continue;
+            }
+
+            shadow.setTime(time);
+            shadow.setLastTimeseries(timeSeries);
+            shadow.clearLastWeights();
+            try {
+                this.shadowForecasts[i] = shadow.combine(forecasts, this.shadowValid, this.numberOfMethods);
+            } catch (RuntimeException e) {
+                System.err.println("Shadow strategy " + this.shadowTypes[i] + " disabled - " + e);
+                this.shadows[i] = null;
+            }
+        }
+    }
+
+    /**
+     * @return strategies evaluated in the shadow of the strategy, the indices of {@link #getShadowForecast(int)}
+     */
+    @NotNull
+    public Strategies[] getShadowStrategies() {
+        return this.shadowTypes.clone();
+    }
+
+    /**
+     * @param index of the shadow strategy
+     * @return combined forecast of the shadow strategy in the latest step, {@code NaN} if it made none
+     */
+    public double getShadowForecast(int index) {
+        return this.shadowForecasts[index];
     }
 
-    public void addMethodForOutperformance(AbstractForecastMethod method) {
-        ((Outperformance) this.strategy).addForecastMethod(method);
+    /**
+     * @return weights of the latest combined forecast, empty if the strategy did not use weights
+     */
+    @NotNull
+    public double[] getLastWeights() {
+        return this.strategy.getLastWeights();
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package forecasting.combinationStrategies;
 
+import forecasting.ErrorStatistics;
 import forecasting.forecastMethods.TimeSeriesStorage;
 import org.jetbrains.annotations.NotNull;
 
@@ -8,9 +9,10 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Contains the neccesary data for the several combination strategies.
@@ -19,10 +21,22 @@ import java.util.Locale;
  */
 public abstract class CombinationStrategy {
     /**
-     * Forecasts made by the activated forecast methods.
+     * Weights of the latest combination, the first lastWeightCount entries are used.
      */
-    protected List<Double> forecasts;
-    List<Double> weights;
+    @NotNull
+    private double[] lastWeights = new double[0];
+    private int lastWeightCount = 0;
+    /**
+     * Reusable buffers of the strategies, they grow to the number of forecast methods.
+     */
+    @NotNull
+    private double[] scratch = new double[0];
+    @NotNull
+    private boolean[] scratchMask = new boolean[0];
+    /**
+     * Error statistics of the forecast methods, shared with the other strategies of the module.
+     */
+    protected ErrorStatistics errorStatistics;
     /**
      * Time step the forecasts were made.
      */
@@ -31,9 +45,13 @@ public abstract class CombinationStrategy {
      * Part of the whole time series the forecasts were based on.
      */
     protected TimeSeriesStorage lastTimeseries;
+    /**
+     * Weight logs shared by all instances of a strategy.
+     */
+    private static final Map<Class<?>, PrintStream> weightPrinters = new HashMap<>();
     // For logging of weights.
     PrintStream psWeights;
-    private DecimalFormat df = new DecimalFormat("#.##", new DecimalFormatSymbols(Locale.US));
+    private DecimalFormat df;
 
     public float getTime() {
         return time;
@@ -43,56 +61,120 @@ public abstract class CombinationStrategy {
         this.time = time;
     }
 
-    public List<Double> getForecasts() {
-        return forecasts;
+    void setErrorStatistics(ErrorStatistics errorStatistics) {
+        this.errorStatistics = errorStatistics;
     }
 
-    public void setForecasts(List<Double> forecasts) {
-        this.forecasts = forecasts;
+    void setLastTimeseries(TimeSeriesStorage lastTimeseries) {
+        this.lastTimeseries = lastTimeseries;
     }
 
-    void setWeights(List<Double> weights) {
-        this.weights = weights;
+    /**
+     * Combines the forecasts of one step. The arrays are indexed by forecast method, belong to the caller and
+     * are reused for the next step, so a strategy must copy what it keeps.
+     *
+     * @param forecasts forecast of each method
+     * @param valid     {@code true} for the methods which take part in the combination
+     * @param count     number of forecast methods
+     * @return combined forecast or {@code NaN}
+     */
+    public abstract double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count);
+
+    /**
+     * @return copy of the weights of the latest combination, empty if the strategy did not use weights
+     */
+    @NotNull
+    double[] getLastWeights() {
+        return Arrays.copyOf(this.lastWeights, this.lastWeightCount);
     }
 
-    void setLastTimeseries(TimeSeriesStorage lastTimeseries) {
-        this.lastTimeseries = lastTimeseries;
+    void clearLastWeights() {
+        this.lastWeightCount = 0;
     }
 
-    public abstract double run();
+    /**
+     * Appends a weight of the current combination.
+     */
+    void addLastWeight(double weight) {
+        if (this.lastWeightCount == this.lastWeights.length) {
+            this.lastWeights = Arrays.copyOf(this.lastWeights, Math.max(4, this.lastWeights.length * 2));
+        }
+        this.lastWeights[this.lastWeightCount++] = weight;
+    }
 
-    void logWeights(List<Double> weights) {
-        String output = "";
-        for (double weight : weights) {
-            output += "," + df.format(weight);
+    /**
+     * Writes the weights of the current combination to the weight log.
+     */
+    void logWeights() {
+        if (psWeights == null || this.lastWeightCount == 0) {
+            return;
         }
 
-        if (output.length() > 1)
-            psWeights.println(output.substring(1));
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < this.lastWeightCount; i++) {
+            if (i > 0) {
+                output.append(',');
+            }
+            output.append(df.format(this.lastWeights[i]));
+        }
+        psWeights.println(output);
+    }
+
+    /**
+     * @param length minimum length
+     * @return reusable buffer, its content is undefined
+     */
+    @NotNull
+    double[] scratch(int length) {
+        if (this.scratch.length < length) {
+            this.scratch = new double[length];
+        }
+        return this.scratch;
+    }
+
+    /**
+     * @param length minimum length
+     * @return reusable mask, its content is undefined
+     */
+    @NotNull
+    boolean[] scratchMask(int length) {
+        if (this.scratchMask.length < length) {
+            this.scratchMask = new boolean[length];
+        }
+        return this.scratchMask;
     }
 
     /**
      * Normalise weights, that they sum up to one. Biggest error results in
      * lowest weight.
      *
-     * @param weights to normalise
+     * @param weights to normalise, only the entries of the mask are used
+     * @param mask    {@code true} for the used entries
+     * @param count   number of entries
      */
-    protected void normaliseWeightsSumToOne(@NotNull List<Double> weights) {
-        if (weights.size() == 1) {
-            weights.set(0, 1.0);
+    protected void normaliseWeightsSumToOne(@NotNull double[] weights, @NotNull boolean[] mask, int count) {
+        int size = countValid(mask, count);
+        if (size == 1) {
+            for (int i = 0; i < count; i++) {
+                if (mask[i]) {
+                    weights[i] = 1.0;
+                }
+            }
             return;
         }
 
         float sum = 0;
-        for (double weight : weights) {
-            sum += weight * weight;
+        for (int i = 0; i < count; i++) {
+            if (mask[i]) {
+                sum += weights[i] * weights[i];
+            }
         }
 
-        int size = weights.size();
-        for (int i = 0; i < size; i++) {
-            double oldWeight = weights.get(i);
-            double newWeight = (1 - oldWeight * oldWeight / sum) / (size - 1);
-            weights.set(i, newWeight);
+        for (int i = 0; i < count; i++) {
+            if (mask[i]) {
+                double oldWeight = weights[i];
+                weights[i] = (1 - oldWeight * oldWeight / sum) / (size - 1);
+            }
         }
     }
 
@@ -100,44 +182,60 @@ public abstract class CombinationStrategy {
      * Sums the weighted predictions up. Special case when all weights are
      * equal: simple mean average.
      *
-     * @param forecasts
+     * @param forecasts forecast of each method
      * @param weights   to weight forecasts
+     * @param mask      {@code true} for the used entries
+     * @param count     number of entries
      * @return weighted sum of predictions
      */
-    protected double simpleWeightedSum(@NotNull List<Double> forecasts, @NotNull List<Double> weights) {
+    protected double simpleWeightedSum(@NotNull double[] forecasts, @NotNull double[] weights, @NotNull boolean[] mask, int count) {
         double sumOfWeightedForecasts = 0;
-        for (int i = 0; i < forecasts.size(); i++) {
-            if (!Double.isNaN(forecasts.get(i))) {
-                sumOfWeightedForecasts += forecasts.get(i) * weights.get(i);
+        for (int i = 0; i < count; i++) {
+            if (mask[i] && !Double.isNaN(forecasts[i])) {
+                sumOfWeightedForecasts += forecasts[i] * weights[i];
             }
         }
         return sumOfWeightedForecasts;
     }
 
     /**
-     * Removes invalid entries, when weight is <=0 or NaN.
+     * @return {@code false} for weights which exclude a forecast: negative, NaN or infinite
      */
-    protected void removeInvalidEntries(@NotNull Iterable<Double> forecasts, @NotNull List<Double> weights) {
-        Iterator<Double> it = forecasts.iterator();
-        int i = 0;
+    protected static boolean isValidWeight(double weight) {
+        return !(weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight));
+    }
 
-        while (it.hasNext()) {
-            double weight = weights.get(i);
-            double forecast = it.next();
-            if (Double.isNaN(forecast) || weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
-                it.remove();
-                weights.remove(i);
-            } else {
-                i++;
+    /**
+     * @return number of {@code true} entries of the mask
+     */
+    protected static int countValid(@NotNull boolean[] mask, int count) {
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            if (mask[i]) {
+                valid++;
             }
         }
+        return valid;
     }
 
+    /**
+     * Opens the weight log of the strategy. All instances of a strategy share one log file.
+     */
     void initWeightPrinter() {
-        try {
-            this.psWeights = new PrintStream(new FileOutputStream(this.getClass().getSimpleName() + "_weights.txt"), true);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+        this.df = new DecimalFormat("#.##", new DecimalFormatSymbols(Locale.US));
+
+        synchronized (weightPrinters) {
+            this.psWeights = weightPrinters.get(this.getClass());
+            if (this.psWeights != null) {
+                return;
+            }
+
+            try {
+                this.psWeights = new PrintStream(new FileOutputStream(this.getClass().getSimpleName() + "_weights.txt"), true);
+                weightPrinters.put(this.getClass(), this.psWeights);
+            } catch (FileNotFoundException e) {
+                e.printStackTrace();
+            }
         }
     }
 }
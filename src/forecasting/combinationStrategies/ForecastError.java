@@ -1,14 +1,30 @@
 package forecasting.combinationStrategies;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Created by oc6admin on 03.03.2016.
  */
 class ForecastError extends CombinationStrategy {
-    public double run() {
-        removeInvalidEntries(forecasts, weights);
-        if (!weights.isEmpty()) {
-            normaliseWeightsSumToOne(weights);
-            return simpleWeightedSum(forecasts, weights);
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        // weight by the MASE of each method, skip entries with an invalid weight
+        boolean[] used = scratchMask(count);
+        double[] normalised = scratch(count);
+        boolean any = false;
+        for (int i = 0; i < count; i++) {
+            normalised[i] = Math.abs(errorStatistics.getMASE(i));
+            used[i] = valid[i] && isValidWeight(normalised[i]);
+            any |= used[i];
+        }
+
+        if (any) {
+            normaliseWeightsSumToOne(normalised, used, count);
+            for (int i = 0; i < count; i++) {
+                if (used[i]) {
+                    addLastWeight(normalised[i]);
+                }
+            }
+            return simpleWeightedSum(forecasts, normalised, used, count);
         }
         return Double.NaN;
     }
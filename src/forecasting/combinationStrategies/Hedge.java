@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Exponentially weighted average forecaster (Hedge): the weight of each method is proportional to
+ * exp(-eta * L_i), L_i being its cumulative loss. The loss of a step is the absolute error of the latest
+ * evaluated forecast divided by the largest absolute error of the step, so it lies in [0, 1].
+ * <p>
+ * The learning rate eta adapts as in AdaHedge: eta = ln(n) / Delta, Delta being the cumulative mixability gap,
+ * i.e. the difference between the loss of the weighted average and the mix loss -1/eta * ln(sum(w_i * exp(-eta
+ * * l_i))). The regret against the best method is bounded without a tuned learning rate or a known number of
+ * steps.
+ * <p>
+ * Methods without an error in a step get the loss of the weighted average, which leaves their weight relative to
+ * the others unchanged. Each step costs O(n).
+ * <p>
+ * de Rooij, van Erven, Grünwald, Koolen: Follow the Leader If You Can, Hedge If You Must (2014)
+ *
+ * @author Matthias Sommer.
+ */
+class Hedge extends CombinationStrategy {
+    private final int methods;
+    /**
+     * Cumulative loss of each method.
+     */
+    @NotNull
+    private final double[] cumulativeLoss;
+    /**
+     * Weights of the latest step, they sum up to one.
+     */
+    @NotNull
+    private final double[] weights;
+    @NotNull
+    private final double[] losses;
+    /**
+     * Cumulative mixability gap.
+     */
+    private double gap = 0;
+    /**
+     * Error step of the latest losses, see {@link forecasting.ErrorStatistics#getErrorStep()}.
+     */
+    private long lastErrorStep = 0;
+
+    /**
+     * @param methods number of forecast methods
+     */
+    Hedge(int methods) {
+        this.methods = methods;
+        this.cumulativeLoss = new double[methods];
+        this.weights = new double[methods];
+        this.losses = new double[methods];
+        updateWeights();
+    }
+
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        update();
+
+        double[] hedgeWeights = scratch(count);
+        boolean[] used = scratchMask(count);
+        int size = 0;
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            used[i] = valid[i] && i < this.methods && !Double.isNaN(forecasts[i]);
+            hedgeWeights[i] = used[i] ? this.weights[i] : 0;
+            if (used[i]) {
+                size++;
+                sum += hedgeWeights[i];
+            }
+        }
+        if (size == 0) {
+            return Double.NaN;
+        }
+
+        // the weights of the methods with a forecast sum up to one, equal weights if all of them are zero
+        for (int i = 0; i < count; i++) {
+            if (used[i]) {
+                hedgeWeights[i] = sum > 0 ? hedgeWeights[i] / sum : 1.0 / size;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            addLastWeight(hedgeWeights[i]);
+        }
+        logWeights();
+        return simpleWeightedSum(forecasts, hedgeWeights, used, count);
+    }
+
+    /**
+     * Adds the losses of the latest evaluated forecasts and updates the learning rate and the weights, once per
+     * arrival of actual values.
+     */
+    private void update() {
+        long errorStep = errorStatistics.getErrorStep();
+        if (errorStep == this.lastErrorStep) {
+            return;
+        }
+        this.lastErrorStep = errorStep;
+
+        double maxError = 0;
+        for (int i = 0; i < this.methods; i++) {
+            double error = Math.abs(errorStatistics.getLastError(i));
+            if (error > maxError) {
+                maxError = error;
+            }
+        }
+        if (!(maxError > 0) || Double.isInfinite(maxError)) {
+            return;
+        }
+
+        // loss of the weighted average over the methods with an error, plain average if they have no weight
+        double hedgeLoss = 0;
+        double activeWeight = 0;
+        double lossSum = 0;
+        int active = 0;
+        for (int i = 0; i < this.methods; i++) {
+            double error = Math.abs(errorStatistics.getLastError(i));
+            this.losses[i] = error / maxError;
+            if (!Double.isNaN(error)) {
+                hedgeLoss += this.weights[i] * this.losses[i];
+                activeWeight += this.weights[i];
+                lossSum += this.losses[i];
+                active++;
+            }
+        }
+        hedgeLoss = activeWeight > 0 ? hedgeLoss / activeWeight : lossSum / active;
+
+        // the smallest loss over the methods with a weight is the mix loss for an infinite learning rate
+        double minLoss = Double.MAX_VALUE;
+        for (int i = 0; i < this.methods; i++) {
+            if (Double.isNaN(this.losses[i])) {
+                this.losses[i] = hedgeLoss;
+            }
+            if (this.weights[i] > 0) {
+                minLoss = Math.min(minLoss, this.losses[i]);
+            }
+        }
+
+        double eta = learningRate();
+        double mixLoss = minLoss;
+        if (!Double.isInfinite(eta)) {
+            double mix = 0;
+            for (int i = 0; i < this.methods; i++) {
+                mix += this.weights[i] * Math.exp(-eta * (this.losses[i] - minLoss));
+            }
+            mixLoss = minLoss - Math.log(mix) / eta;
+        }
+
+        this.gap += Math.max(0, hedgeLoss - mixLoss);
+        for (int i = 0; i < this.methods; i++) {
+            this.cumulativeLoss[i] += this.losses[i];
+        }
+        updateWeights();
+    }
+
+    private double learningRate() {
+        return this.gap > 0 ? Math.log(this.methods) / this.gap : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * w_i = exp(-eta * (L_i - min L)) / sum, all methods with the smallest loss share the weight if eta is infinite.
+     */
+    private void updateWeights() {
+        double eta = learningRate();
+        double minLoss = Double.MAX_VALUE;
+        for (int i = 0; i < this.methods; i++) {
+            minLoss = Math.min(minLoss, this.cumulativeLoss[i]);
+        }
+
+        double sum = 0;
+        for (int i = 0; i < this.methods; i++) {
+            double difference = this.cumulativeLoss[i] - minLoss;
+            this.weights[i] = Double.isInfinite(eta) ? (difference == 0 ? 1 : 0) : Math.exp(-eta * difference);
+            sum += this.weights[i];
+        }
+        for (int i = 0; i < this.methods; i++) {
+            this.weights[i] /= sum;
+        }
+    }
+}
@@ -9,28 +9,36 @@ package forecasting.combinationStrategies;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Stock and Watson (2001) A Comparison of Linear and Nonlinear Univariate
  * Models for Forecasting Macroeconomic Time Series
  *
  * @author Matthias Sommer.
  */
-class Median extends CombinationStrategy {
+class Median extends OrderStatistics {
     /**
-     * Sort forecasts ascending, take middle value and return it as forecast.
+     * Select the middle value of the forecasts and return it as forecast. For an even number of forecasts, the
+     * mean of the two middle values.
      *
      * @return median of forecasts
      */
-    public double run() {
-        Collections.sort(forecasts);
-        final int size = forecasts.size();
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        double[] values = scratch(count);
+        int size = copyValid(forecasts, valid, count, values);
+        if (size == 0) {
+            return Double.NaN;
+        }
 
+        double upper = select(values, 0, size - 1, size / 2);
         if (size % 2 != 0) {
-            return forecasts.get((size - 1) / 2);
+            return upper;
+        }
+
+        // the lower middle value is the largest value before the upper one
+        double lower = values[0];
+        for (int i = 1; i < size / 2; i++) {
+            lower = Math.max(lower, values[i]);
         }
-        return (forecasts.get(size / 2 - 1) + forecasts.get(size / 2)) / 2;
+        return (lower + upper) / 2;
     }
 }
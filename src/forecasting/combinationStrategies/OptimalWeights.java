@@ -7,14 +7,8 @@
 
 package forecasting.combinationStrategies;
 
-import Jama.Matrix;
-import forecasting.forecastMethods.AbstractForecastMethod;
-import org.apache.commons.math3.util.FastMath;
 import org.jetbrains.annotations.NotNull;
-
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.*;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Optimal weights: The linear weights are calculated to minimise the error variance of the
@@ -31,128 +25,117 @@ import java.util.*;
  * Vector of weights w = (S^-1 * E) (E'*S^-1*E)^-1
  * <p>
  * InTech-How_to_provide_accurate_and_robust_traffic_forecasts_practically 3.2.1ff
+ * <p>
+ * With the diagonal estimate the weights reduce to w_i = (1 / S_ii) / sum_j(1 / S_jj), which is computed in O(n)
+ * over the methods with a valid forecast from the squared error sums of the shared
+ * {@link forecasting.ErrorStatistics}. The full covariance variant keeps S^-1 up to date with rolling
+ * Sherman-Morrison updates, see {@link RollingInverseCovariance}; it falls back to the diagonal weights while
+ * the covariance window is not full or if not all methods made a forecast.
  *
  * @author Matthias Sommer.
  */
 class OptimalWeights extends CombinationStrategy {
     /**
-     * Maps each forecast method with a list of its latest forecast errors.
+     * Number of error vectors the full covariance is estimated from.
+     */
+    private static final int COVARIANCE_WINDOW = 48;
+    private final int methods;
+    /**
+     * Forecast errors of the current step, reused for the covariance update.
      */
     @NotNull
-    private final Map<AbstractForecastMethod, List<Double>> forecastErrorMap;
+    private final double[] stepErrors;
+    @Nullable
+    private final RollingInverseCovariance covariance;
     /**
-     * Number of entries needed for the average forecast error calculation.
+     * Error step of the latest errors added to the covariance, see {@link forecasting.ErrorStatistics#getErrorStep()}.
      */
-    private final int averageCount = 5;
+    private long lastErrorStep = 0;
 
-    OptimalWeights() {
-        this.forecastErrorMap = new HashMap<>();
-    }
-
-    void addForecastMethod(final AbstractForecastMethod forecastMethod) {
-        this.forecastErrorMap.putIfAbsent(forecastMethod, new ArrayList<>(averageCount));
+    /**
+     * @param methods        number of forecast methods
+     * @param fullCovariance {@code true} to estimate the full error covariance instead of only its diagonal
+     */
+    OptimalWeights(int methods, boolean fullCovariance) {
+        this.methods = methods;
+        this.stepErrors = new double[methods];
+        this.covariance = fullCovariance ? new RollingInverseCovariance(methods, COVARIANCE_WINDOW) : null;
     }
 
-    void addForecastError(AbstractForecastMethod forecastMethod, double error) {
-        List<Double> errors = this.forecastErrorMap.get(forecastMethod);
-        errors.add(error);
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        updateCovariance();
 
-        while (errors.size() > this.averageCount) {
-            errors.remove(0);
-        }
-    }
-
-    private void removeEmptyForecastMethods() {
-        Iterator<Map.Entry<AbstractForecastMethod, List<Double>>> it = this.forecastErrorMap.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<AbstractForecastMethod, List<Double>> entry = it.next();
-            if (entry.getValue().isEmpty()) {
-                it.remove();
+        double[] optimalWeights = scratch(count);
+        boolean[] used = scratchMask(count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            used[i] = valid[i] && i < this.methods && !Double.isNaN(errorStatistics.getLastError(i));
+            if (used[i]) {
+                size++;
             }
         }
-    }
-
-    public double run() {
-        List<Double> weights = getWeights();
-        if (!weights.isEmpty()) {
-            logWeights(weights);
-            return simpleWeightedSum(forecasts, weights);
+        if (size < 2) {
+            return Double.NaN;
         }
-        return Double.NaN;
-    }
 
-    @NotNull
-    private List<Double> getWeights() {
-        removeEmptyForecastMethods();
-        if (this.forecastErrorMap.size() < 2) {
-            return Collections.emptyList();
+        boolean full = this.covariance != null && size == this.methods && this.covariance.weights(optimalWeights);
+        if (!full && !diagonalWeights(optimalWeights, used, count)) {
+            return Double.NaN;
         }
 
-        int size = this.forecastErrorMap.size();
-        double[][] forecastErrors = getDiagonalErrorMatrix(size);
-        Matrix errorMatrix = new Matrix(forecastErrors);
-
-        double determinante = errorMatrix.det();
-        if (determinante == 0 || Double.isNaN(determinante)) {
-            return Collections.emptyList();
+        for (int i = 0; i < count; i++) {
+            if (used[i]) {
+                addLastWeight(optimalWeights[i]);
+            }
         }
+        logWeights();
+        return simpleWeightedSum(forecasts, optimalWeights, used, count);
+    }
 
-        Matrix inverseErrorMatrix = errorMatrix.inverse();
-
-        Matrix unitVector = createUnitMatrix(size, 1);
-        Matrix unitMatrix = createUnitMatrix(1, size);
-
-        Matrix m = inverseErrorMatrix.times(unitVector);
-        Matrix n = unitMatrix.times(inverseErrorMatrix).times(unitVector);
-
-        Matrix weights = m.times(n.inverse());
-
-        List<Double> weightsList = new ArrayList<>(weights.getColumnDimension());
-        for (int j = 0; j < weights.getRowDimension(); j++) {
-            weightsList.add(weights.get(j, 0));
+    /**
+     * Adds the latest errors to the covariance if every method has one, once per arrival of actual values.
+     */
+    private void updateCovariance() {
+        if (this.covariance == null || errorStatistics.getErrorStep() == this.lastErrorStep) {
+            return;
         }
-        return weightsList;
-    }
+        this.lastErrorStep = errorStatistics.getErrorStep();
 
-    @NotNull
-    private Matrix createUnitMatrix(int cols, int rows) {
-        double[][] identity = new double[cols][rows];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                identity[j][i] = 1;
+        for (int i = 0; i < this.methods; i++) {
+            this.stepErrors[i] = errorStatistics.getLastError(i);
+            if (Double.isNaN(this.stepErrors[i])) {
+                return;
             }
         }
-        return new Matrix(identity);
+        this.covariance.add(this.stepErrors);
     }
 
     /**
-     * The estimate of S in (1) is restricted to be diagonal, comprising just the individual forecast error variances.
-     * --> Werte nur auf Hauptdiagonale, sonst alles 0.
-     * <p>
-     * Um die Unabhängigkeitsannahme fallen zu lassen, müssen die einzelnen Covariancen multipliziert werden:
-     * M(1,1)=M(0,1)*M(1,0) usw.
+     * The estimate of S is restricted to be diagonal, comprising just the individual forecast error variances,
+     * so its inverse is the reciprocal of the diagonal.
      *
-     * @param size n*n, n being the number of forecast models
-     * @return forecast covariance matrix
+     * @return {@code false} if a method has a zero error sum, i.e. S is singular
      */
-    @NotNull
-    private double[][] getDiagonalErrorMatrix(final int size) {
-        double[][] forecastErrors = new double[size][size];
-
-        int k = 0;
-        for (Map.Entry<AbstractForecastMethod, List<Double>> entry : this.forecastErrorMap.entrySet()) {
-            List<Double> errors = entry.getValue();
-
-            // calculate the quadratic sum of all forecasts errors of method i
-            double sum = 0;
-            for (double error : errors) {
-                sum += FastMath.pow(error, 2);
+    private boolean diagonalWeights(@NotNull double[] optimalWeights, @NotNull boolean[] used, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            if (used[i]) {
+                // quadratic sum of the latest forecast errors of method i
+                double squaredErrors = errorStatistics.getSquaredErrorSum(i);
+                if (squaredErrors == 0) {
+                    return false;
+                }
+
+                optimalWeights[i] = 1 / squaredErrors;
+                sum += optimalWeights[i];
             }
-
-            forecastErrors[k][k] = sum;
-            k++;
         }
 
-        return forecastErrors;
+        for (int i = 0; i < count; i++) {
+            if (used[i]) {
+                optimalWeights[i] /= sum;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base of the robust combinations which only depend on the order of the forecasts (median, trimmed and
+ * winsorized mean). The valid forecasts are copied to a scratch array and the needed order statistics are found
+ * by quickselect in expected O(n), so the forecasts of the caller keep their order and nothing is boxed.
+ *
+ * @author Matthias Sommer.
+ */
+abstract class OrderStatistics extends CombinationStrategy {
+    /**
+     * Copies the valid forecasts to the beginning of the scratch array.
+     *
+     * @return number of copied forecasts
+     */
+    int copyValid(@NotNull double[] forecasts, @NotNull boolean[] valid, int count, @NotNull double[] values) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (valid[i] && !Double.isNaN(forecasts[i])) {
+                values[size++] = forecasts[i];
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Partially sorts the range, so that position k holds the value it would have in a sorted range, all values
+     * before it are smaller or equal and all values after it are greater or equal.
+     *
+     * @param values the values
+     * @param left   first position of the range
+     * @param right  last position of the range, inclusive
+     * @param k      position to select
+     * @return the selected value
+     */
+    static double select(@NotNull double[] values, int left, int right, int k) {
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    /**
+     * Selects the trimmed range: afterwards the positions {@code [trim, size - trim)} hold the middle values in
+     * any order, the smaller values are before and the greater values after them.
+     *
+     * @param values the values
+     * @param size   number of values
+     * @param trim   number of values to cut off at each end
+     */
+    static void selectMiddle(@NotNull double[] values, int size, int trim) {
+        if (trim > 0) {
+            select(values, 0, size - 1, trim);
+            select(values, trim, size - 1, size - trim - 1);
+        }
+    }
+
+    /**
+     * @param fraction fraction of the values to cut off at each end, in [0, 0.5)
+     * @param size     number of values
+     * @return number of values to cut off at each end, the middle keeps at least one value
+     */
+    static int trimCount(double fraction, int size) {
+        return Math.min((int) Math.floor(fraction * size), (size - 1) / 2);
+    }
+}
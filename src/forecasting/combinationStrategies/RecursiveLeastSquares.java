@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stacking by recursive least squares: the combined forecast is w' * f, the weights w are the least squares
+ * regression of the actual values on the individual forecasts of the previous steps. Older steps are discounted
+ * by the forgetting factor lambda, so the weights follow changes of the accuracy of the methods.
+ * <p>
+ * Every new actual value updates w and the inverse P of the discounted input covariance in O(n^2):
+ * <p>
+ * k = P * f / (lambda + f' * P * f), w = w + k * (y - w' * f), P = (P - k * f' * P) / lambda
+ * <p>
+ * The weights start as the simple average with a weak prior, they are not restricted to sum up to one. Optionally
+ * negative weights are set to zero in the combination; the regression itself stays unconstrained, clipping its
+ * weights makes the updates unstable. A missing forecast is replaced by the mean of the valid forecasts of its
+ * step. The trace of P is bounded, otherwise it grows without limit with lambda &lt; 1 if the forecasts hardly
+ * change.
+ *
+ * @author Matthias Sommer.
+ */
+class RecursiveLeastSquares extends CombinationStrategy {
+    /**
+     * Initial P relative to the inverse mean squared forecast, i.e. the weight of the prior in observations.
+     */
+    private static final double INITIAL_COVARIANCE = 1;
+    /**
+     * Largest trace of P relative to its initial trace.
+     */
+    private static final double MAX_TRACE_FACTOR = 1e4;
+
+    private final int methods;
+    private final double forgettingFactor;
+    private final boolean nonNegative;
+    @NotNull
+    private final double[] weights;
+    @NotNull
+    private final double[][] covariance;
+    /**
+     * Forecasts of the previous step, the regressors of the next update.
+     */
+    @NotNull
+    private final double[] lastForecasts;
+    private boolean hasLastForecasts = false;
+    /**
+     * Number of values of the time series when the last forecasts were made, the next value is their actual value.
+     */
+    private long lastValueCount;
+    private boolean initialised = false;
+    private double maxTrace;
+    /**
+     * Scratch space: P * f and the forecasts of the current step with the missing ones replaced.
+     */
+    @NotNull
+    private final double[] product;
+    @NotNull
+    private final double[] input;
+
+    /**
+     * @param methods          number of forecast methods
+     * @param forgettingFactor discount of older steps, in (0, 1]
+     * @param nonNegative      {@code true} to set negative weights to zero
+     */
+    RecursiveLeastSquares(int methods, double forgettingFactor, boolean nonNegative) {
+        this.methods = methods;
+        this.forgettingFactor = forgettingFactor;
+        this.nonNegative = nonNegative;
+        this.weights = new double[methods];
+        this.covariance = new double[methods][methods];
+        this.lastForecasts = new double[methods];
+        this.product = new double[methods];
+        this.input = new double[methods];
+
+        for (int i = 0; i < methods; i++) {
+            this.weights[i] = 1.0 / methods;
+        }
+    }
+
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        // repeated combinations without a new value replace the last forecasts instead of using the value again
+        long valueCount = lastTimeseries.getValueCount();
+        if (this.hasLastForecasts && valueCount != this.lastValueCount) {
+            double actual = lastTimeseries.getLastValue();
+            if (!Double.isNaN(actual)) {
+                update(actual);
+            }
+        }
+
+        this.hasLastForecasts = fillInput(forecasts, valid, count);
+        if (!this.hasLastForecasts) {
+            return Double.NaN;
+        }
+        System.arraycopy(this.input, 0, this.lastForecasts, 0, this.methods);
+        this.lastValueCount = valueCount;
+
+        double combined = 0;
+        for (int i = 0; i < this.methods; i++) {
+            double weight = this.nonNegative ? Math.max(0, this.weights[i]) : this.weights[i];
+            combined += weight * this.input[i];
+            addLastWeight(weight);
+        }
+        logWeights();
+        return combined;
+    }
+
+    /**
+     * Copies the forecasts to the input and replaces the missing ones by the mean of the valid forecasts.
+     *
+     * @return {@code false} if no forecast is valid
+     */
+    private boolean fillInput(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        double sum = 0;
+        int size = 0;
+        for (int i = 0; i < this.methods; i++) {
+            if (i < count && valid[i] && !Double.isNaN(forecasts[i])) {
+                sum += forecasts[i];
+                size++;
+            }
+        }
+        if (size == 0) {
+            return false;
+        }
+
+        double mean = sum / size;
+        for (int i = 0; i < this.methods; i++) {
+            boolean known = i < count && valid[i] && !Double.isNaN(forecasts[i]);
+            this.input[i] = known ? forecasts[i] : mean;
+        }
+        return true;
+    }
+
+    /**
+     * Regresses the actual value on the forecasts of the previous step.
+     */
+    private void update(double actual) {
+        double[] f = this.lastForecasts;
+        int n = this.methods;
+
+        if (!this.initialised && !initialise(f)) {
+            return;
+        }
+
+        double denominator = this.forgettingFactor;
+        double prediction = 0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += this.covariance[i][j] * f[j];
+            }
+            this.product[i] = sum;
+            denominator += f[i] * sum;
+            prediction += this.weights[i] * f[i];
+        }
+
+        // P is symmetric, so f' * P equals the transposed product and the gain is product / denominator
+        double error = actual - prediction;
+        for (int i = 0; i < n; i++) {
+            this.weights[i] += this.product[i] / denominator * error;
+        }
+
+        double trace = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                this.covariance[i][j] = (this.covariance[i][j] - this.product[i] * this.product[j] / denominator)
+                        / this.forgettingFactor;
+            }
+            trace += this.covariance[i][i];
+        }
+
+        if (trace > this.maxTrace) {
+            double scale = this.maxTrace / trace;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    this.covariance[i][j] *= scale;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets P to a multiple of the identity, scaled by the size of the first forecasts.
+     *
+     * @return {@code false} if all forecasts are zero
+     */
+    private boolean initialise(@NotNull double[] f) {
+        double squares = 0;
+        for (int i = 0; i < this.methods; i++) {
+            squares += f[i] * f[i];
+        }
+        if (!(squares > 0)) {
+            return false;
+        }
+
+        double diagonal = INITIAL_COVARIANCE * this.methods / squares;
+        for (int i = 0; i < this.methods; i++) {
+            this.covariance[i][i] = diagonal;
+        }
+        this.maxTrace = MAX_TRACE_FACTOR * diagonal * this.methods;
+        this.initialised = true;
+        return true;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Inverse of the forecast error covariance matrix S = lambda * I + sum(e * e') over the error vectors of the last
+ * window steps.
+ * <p>
+ * Once the window is full, every new error vector changes S by two rank-one terms: the new vector is added, the
+ * oldest one removed. The inverse follows with two Sherman-Morrison updates in O(n^2) instead of an O(n^3)
+ * inversion per step. Rounding errors of the updates are removed by a full inversion after a fixed number of
+ * updates or if an update becomes ill-conditioned. The ridge lambda keeps S invertible for correlated forecast
+ * methods, it is set relative to the mean error variance when the window is full for the first time.
+ * <p>
+ * All buffers are allocated once.
+ *
+ * @author Matthias Sommer.
+ */
+final class RollingInverseCovariance {
+    /**
+     * Ridge relative to the mean diagonal entry of S.
+     */
+    private static final double RELATIVE_RIDGE = 1e-3;
+    /**
+     * Number of rank-one updates after which the inverse is computed from scratch.
+     */
+    private static final int REFRESH_INTERVAL = 500;
+    /**
+     * Smallest accepted Sherman-Morrison denominator, smaller ones trigger a full inversion.
+     */
+    private static final double MIN_DENOMINATOR = 1e-9;
+
+    private final int size;
+    /**
+     * Ring buffer of the error vectors of the last window steps.
+     */
+    @NotNull
+    private final double[][] errors;
+    private int next = 0;
+    private int count = 0;
+    private double ridge = Double.NaN;
+    @NotNull
+    private final double[][] inverse;
+    /**
+     * Scratch space: S^-1 * e and the augmented matrix of the full inversion.
+     */
+    @NotNull
+    private final double[] product;
+    @NotNull
+    private final double[][] augmented;
+    private int updates = 0;
+    private boolean invertible = false;
+
+    /**
+     * @param size   number of forecast methods
+     * @param window number of error vectors the covariance is estimated from
+     */
+    RollingInverseCovariance(int size, int window) {
+        this.size = size;
+        this.errors = new double[window][size];
+        this.inverse = new double[size][size];
+        this.product = new double[size];
+        this.augmented = new double[size][2 * size];
+    }
+
+    /**
+     * Adds the error vector of one step, the oldest vector leaves the window.
+     *
+     * @param error forecast error of each method, copied
+     */
+    void add(@NotNull double[] error) {
+        double[] slot = this.errors[this.next];
+        boolean full = this.count == this.errors.length;
+
+        if (full && this.invertible) {
+            // add the new vector before removing the old one, so that the matrix stays positive definite
+            boolean stable = rankOneUpdate(error, 1) && rankOneUpdate(slot, -1);
+            System.arraycopy(error, 0, slot, 0, this.size);
+            this.updates += 2;
+            if (!stable || this.updates >= REFRESH_INTERVAL) {
+                advance();
+                refresh();
+                return;
+            }
+        } else {
+            System.arraycopy(error, 0, slot, 0, this.size);
+        }
+        advance();
+
+        if (this.count == this.errors.length && !this.invertible) {
+            refresh();
+        }
+    }
+
+    private void advance() {
+        this.next = (this.next + 1) % this.errors.length;
+        this.count = Math.min(this.count + 1, this.errors.length);
+    }
+
+    /**
+     * Sherman-Morrison update of the inverse for S + sign * e * e'.
+     *
+     * @return {@code false} if the denominator is too small for a reliable update
+     */
+    private boolean rankOneUpdate(@NotNull double[] e, int sign) {
+        double denominator = 1;
+        for (int i = 0; i < this.size; i++) {
+            double sum = 0;
+            for (int j = 0; j < this.size; j++) {
+                sum += this.inverse[i][j] * e[j];
+            }
+            this.product[i] = sum;
+            denominator += sign * e[i] * sum;
+        }
+        if (!(denominator > MIN_DENOMINATOR)) {
+            return false;
+        }
+
+        // the inverse is symmetric, so S^-1 * e * e' * S^-1 is the outer product of the product with itself
+        double factor = sign / denominator;
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                this.inverse[i][j] -= factor * this.product[i] * this.product[j];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds S from the window and inverts it by Gauss-Jordan elimination with partial pivoting.
+     */
+    private void refresh() {
+        this.updates = 0;
+        int n = this.size;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < 2 * n; j++) {
+                this.augmented[i][j] = 0;
+            }
+        }
+        for (int k = 0; k < this.count; k++) {
+            double[] e = this.errors[k];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    this.augmented[i][j] += e[i] * e[j];
+                }
+            }
+        }
+
+        if (Double.isNaN(this.ridge)) {
+            double trace = 0;
+            for (int i = 0; i < n; i++) {
+                trace += this.augmented[i][i];
+            }
+            this.ridge = Math.max(RELATIVE_RIDGE * trace / n, Double.MIN_NORMAL);
+        }
+        for (int i = 0; i < n; i++) {
+            this.augmented[i][i] += this.ridge;
+            this.augmented[i][n + i] = 1;
+        }
+
+        this.invertible = invert();
+    }
+
+    private boolean invert() {
+        int n = this.size;
+        for (int column = 0; column < n; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < n; row++) {
+                if (Math.abs(this.augmented[row][column]) > Math.abs(this.augmented[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            if (!(Math.abs(this.augmented[pivot][column]) > 0)) {
+                return false;
+            }
+            double[] swap = this.augmented[pivot];
+            this.augmented[pivot] = this.augmented[column];
+            this.augmented[column] = swap;
+
+            double[] pivotRow = this.augmented[column];
+            double scale = 1 / pivotRow[column];
+            for (int j = 0; j < 2 * n; j++) {
+                pivotRow[j] *= scale;
+            }
+            for (int row = 0; row < n; row++) {
+                double factor = this.augmented[row][column];
+                if (row != column && factor != 0) {
+                    for (int j = 0; j < 2 * n; j++) {
+                        this.augmented[row][j] -= factor * pivotRow[j];
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(this.augmented[i], n, this.inverse[i], 0, n);
+        }
+        return true;
+    }
+
+    /**
+     * Bates-Granger weights w = S^-1 * 1 / (1' * S^-1 * 1), they sum up to one and may be negative.
+     *
+     * @param weights receives the weight of each method
+     * @return {@code false} if the window is not full yet or S is degenerate
+     */
+    boolean weights(@NotNull double[] weights) {
+        if (!this.invertible) {
+            return false;
+        }
+
+        double total = 0;
+        for (int i = 0; i < this.size; i++) {
+            double sum = 0;
+            for (int j = 0; j < this.size; j++) {
+                sum += this.inverse[i][j];
+            }
+            weights[i] = sum;
+            total += sum;
+        }
+        if (!(total > 0) || Double.isInfinite(total)) {
+            return false;
+        }
+
+        for (int i = 0; i < this.size; i++) {
+            weights[i] /= total;
+        }
+        return true;
+    }
+}
@@ -1,17 +1,20 @@
 package forecasting.combinationStrategies;
 
-import java.util.ArrayList;
-import java.util.List;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Created by oc6admin on 03.03.2016.
  */
 class SimpleAverage extends CombinationStrategy {
-    public double run() {
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
         double forecastSum = 0;
-        for (double forecast : forecasts) {
-            forecastSum += forecast;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (valid[i]) {
+                forecastSum += forecasts[i];
+                size++;
+            }
         }
-        return forecastSum / (double) forecasts.size();
+        return size == 0 ? Double.NaN : forecastSum / (double) size;
     }
 }
@@ -1,5 +1,6 @@
 package forecasting.combinationStrategies;
 
+import forecasting.ForecastConfiguration;
 import forecasting.combinationStrategies.ann.ANNWeighting;
 import forecasting.combinationStrategies.dlc.DLCWeighting;
 import forecasting.combinationStrategies.xcsf.XCSF;
@@ -14,46 +15,83 @@ import org.jetbrains.annotations.Nullable;
 public enum Strategies {
     ANN_WEIGHTING {
         @NotNull
-        public CombinationStrategy create() {
-            return new ANNWeighting();
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new ANNWeighting(configuration.getForecastMethods().size(), configuration.isAnnOnlineLearning(),
+                    configuration.getAnnNetworkType(), configuration.getAnnTrainer(), configuration.getAnnTrainingThreads());
         }
     },
     SIMPLE_AVERAGE {
         @NotNull
-        public CombinationStrategy create() {
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
             return new SimpleAverage();
         }
     },
     FORECAST_ERROR {
         @NotNull
-        public CombinationStrategy create() {
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
             return new ForecastError();
         }
     },
     OUTPERFORMANCE {
         @NotNull
-        public CombinationStrategy create() {
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
             return new Outperformance();
         }
     },
     OPTIMALWEIGHTS {
         @NotNull
-        public CombinationStrategy create() {
-            return new OptimalWeights();
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new OptimalWeights(configuration.getForecastMethods().size(), false);
+        }
+    },
+    OPTIMALWEIGHTS_COVARIANCE {
+        @NotNull
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new OptimalWeights(configuration.getForecastMethods().size(), true);
+        }
+    },
+    HEDGE {
+        @NotNull
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new Hedge(configuration.getForecastMethods().size());
         }
     },
     MEDIAN {
         @NotNull
-        public CombinationStrategy create() {
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
             return new Median();
         }
     },
+    TRIMMED_MEAN {
+        @NotNull
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new TrimmedMean(configuration.getTrimFraction());
+        }
+    },
+    WINSORIZED_MEAN {
+        @NotNull
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new WinsorizedMean(configuration.getTrimFraction());
+        }
+    },
+    RECURSIVE_LEAST_SQUARES {
+        @NotNull
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
+            return new RecursiveLeastSquares(configuration.getForecastMethods().size(),
+                    configuration.getRlsForgettingFactor(), configuration.isRlsNonNegative());
+        }
+    },
     XCSF {
         @NotNull
-        public CombinationStrategy create() {
+        public CombinationStrategy create(@NotNull ForecastConfiguration configuration) {
             return new XCSF();
         }
     };
 
-    public abstract CombinationStrategy create();
+    /**
+     * @param configuration the configuration of the forecast module
+     * @return a new instance of the strategy
+     */
+    @NotNull
+    public abstract CombinationStrategy create(@NotNull ForecastConfiguration configuration);
 }
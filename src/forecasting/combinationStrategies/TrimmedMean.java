@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Trimmed mean: the lowest and highest forecasts are discarded and the remaining ones are averaged. Robust
+ * against single forecast methods which fail badly, while using more information than the median.
+ * <p>
+ * Jose and Winkler (2008) Simple robust averages of forecasts: Some empirical results
+ *
+ * @author Matthias Sommer.
+ */
+class TrimmedMean extends OrderStatistics {
+    /**
+     * Fraction of the forecasts discarded at each end.
+     */
+    private final double trimFraction;
+
+    /**
+     * @param trimFraction fraction of the forecasts discarded at each end, in [0, 0.5)
+     */
+    TrimmedMean(double trimFraction) {
+        this.trimFraction = trimFraction;
+    }
+
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        double[] values = scratch(count);
+        int size = copyValid(forecasts, valid, count, values);
+        if (size == 0) {
+            return Double.NaN;
+        }
+
+        int trim = trimCount(this.trimFraction, size);
+        selectMiddle(values, size, trim);
+
+        double sum = 0;
+        for (int i = trim; i < size - trim; i++) {
+            sum += values[i];
+        }
+        return sum / (size - 2 * trim);
+    }
+}
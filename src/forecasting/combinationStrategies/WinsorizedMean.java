@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Winsorized mean: the lowest and highest forecasts are replaced by the nearest remaining forecast before all
+ * forecasts are averaged. Keeps the number of averaged values, but limits the influence of outliers.
+ * <p>
+ * Jose and Winkler (2008) Simple robust averages of forecasts: Some empirical results
+ *
+ * @author Matthias Sommer.
+ */
+class WinsorizedMean extends OrderStatistics {
+    /**
+     * Fraction of the forecasts replaced at each end.
+     */
+    private final double trimFraction;
+
+    /**
+     * @param trimFraction fraction of the forecasts replaced at each end, in [0, 0.5)
+     */
+    WinsorizedMean(double trimFraction) {
+        this.trimFraction = trimFraction;
+    }
+
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        double[] values = scratch(count);
+        int size = copyValid(forecasts, valid, count, values);
+        if (size == 0) {
+            return Double.NaN;
+        }
+
+        int trim = trimCount(this.trimFraction, size);
+        selectMiddle(values, size, trim);
+
+        double sum = 0;
+        double lowest = Double.POSITIVE_INFINITY;
+        double highest = Double.NEGATIVE_INFINITY;
+        for (int i = trim; i < size - trim; i++) {
+            sum += values[i];
+            lowest = Math.min(lowest, values[i]);
+            highest = Math.max(highest, values[i]);
+        }
+        sum += trim * (lowest + highest);
+        return sum / size;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies.ann;
+
+import org.encog.ml.data.MLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.training.propagation.Propagation;
+import org.encog.neural.networks.training.propagation.quick.QuickPropagation;
+import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+import org.encog.neural.networks.training.propagation.scg.ScaledConjugateGradient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Batch training algorithms of the {@link ANNWeighting}.
+ * Factory for the creation of an Encog trainer.
+ *
+ * @author Matthias Sommer.
+ */
+public enum ANNTrainer {
+    /**
+     * Resilient propagation, only uses the sign of the gradient.
+     */
+    RPROP {
+        @NotNull
+        Propagation create(@NotNull BasicNetwork network, @NotNull MLDataSet trainingSet) {
+            return new ResilientPropagation(network, trainingSet);
+        }
+    },
+    QUICK {
+        @NotNull
+        Propagation create(@NotNull BasicNetwork network, @NotNull MLDataSet trainingSet) {
+            return new QuickPropagation(network, trainingSet);
+        }
+    },
+    /**
+     * Scaled conjugate gradient, no learning rate to choose.
+     */
+    SCG {
+        @NotNull
+        Propagation create(@NotNull BasicNetwork network, @NotNull MLDataSet trainingSet) {
+            return new ScaledConjugateGradient(network, trainingSet);
+        }
+    };
+
+    /**
+     * @param network     the network to train
+     * @param trainingSet the pairs of forecasts and actual value
+     * @return a new trainer for the network
+     */
+    @NotNull
+    abstract Propagation create(@NotNull BasicNetwork network, @NotNull MLDataSet trainingSet);
+}
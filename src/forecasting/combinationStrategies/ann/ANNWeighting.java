@@ -7,7 +7,6 @@
 
 package forecasting.combinationStrategies.ann;
 
-import forecasting.DefaultForecastParameters;
 import forecasting.combinationStrategies.CombinationStrategy;
 import org.encog.ml.data.MLData;
 import org.encog.ml.data.MLDataPair;
@@ -16,72 +15,231 @@ import org.encog.ml.data.basic.BasicMLDataPair;
 import org.encog.ml.data.basic.BasicMLDataSet;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.training.propagation.Propagation;
-import org.encog.neural.networks.training.propagation.quick.QuickPropagation;
+import org.encog.neural.networks.training.propagation.back.Backpropagation;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.jetbrains.annotations.NotNull;
 import tools.LimitedQueue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Uses an Artificial Neural Network to find the optimal weights for the combination of forecasts.
- * A simple feed forward network with one hidden layer.
+ * A network with one hidden layer, feed forward by default.
  * Receives the forecast values from all forecastMethods who made forecasts and returns the combined forecast value.
  * <p>
  * nonlinear combination.
  * <p>
  * Data has to be normalised to [0;1] because of the sigmoid function to work properly!
+ * <p>
+ * The training set slides over the latest pairs of forecasts and actual value. The network is retrained in the
+ * background each time enough new pairs arrived: a copy of the current network is trained on a snapshot of the
+ * training set and replaces the network when it is done. The combination never waits for a training and uses
+ * the latest finished network. The latest pairs of the snapshot are held out: the training stops once the error
+ * on them has not improved for a number of epochs and the network keeps the weights with the smallest error.
+ * <p>
+ * In online mode there is no training set: every new pair triggers one backpropagation step of the network on
+ * the combining thread, the pair and the network input are reused buffers. Forecasts are made after as many
+ * updates as the batch mode needs pairs for its first training.
  *
  * @author Matthias Sommer.
  */
 public class ANNWeighting extends CombinationStrategy {
+    /**
+     * Number of new pairs after which the network is retrained.
+     */
+    private static final int RETRAIN_INTERVAL = 100;
+    /**
+     * Learning rate and momentum of the online updates.
+     */
+    private static final double ONLINE_LEARNING_RATE = 0.01;
+    private static final double ONLINE_MOMENTUM = 0.5;
+    /**
+     * Fraction of the latest pairs of a training set held out for the early stopping.
+     */
+    private static final double VALIDATION_FRACTION = 0.2;
+    /**
+     * Number of epochs without improvement of the validation error after which a training stops.
+     */
+    private static final int PATIENCE = 10;
+    private static final int MAX_EPOCHS = 200;
+    private static final double TARGET_ERROR = 0.001;
+    /**
+     * Trains the networks of all modules in the background.
+     */
+    private static final ExecutorService trainingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ann-training");
+        thread.setDaemon(true);
+        return thread;
+    });
     /**
      * Number of values needed for the training set.
      */
     private final int capacity = 300;
     private LimitedQueue<MLDataPair> trainingSet;
-    private BasicNetwork network;
-    private boolean isANNTrained = false;
+    /**
+     * Latest trained network, {@code null} until the first training is done. Replaced as a whole by the training
+     * thread and never changed afterwards.
+     */
+    private volatile BasicNetwork network;
+    /**
+     * Network of the combining thread: the starting point of the first batch training, trained in place in online
+     * mode.
+     */
+    private final BasicNetwork localNetwork;
     private int hiddenNeurons = 7;
-    private List<Double> lastForecasts = new ArrayList<>();
+    /**
+     * Running training, at most one per strategy.
+     */
+    private Future<?> training;
+    /**
+     * Number of pairs added since the latest training started.
+     */
+    private int newPairs = 0;
+    /**
+     * {@code true} for one update per new pair instead of batch retraining.
+     */
+    private final boolean online;
+    /**
+     * Online mode: the pair of the latest forecasts and actual value, overwritten for every update.
+     */
+    private BasicMLData onlineInput;
+    private BasicMLData onlineIdeal;
+    private Propagation onlineTrainer;
+    private int onlineUpdates = 0;
+    @NotNull
+    private final ANNTrainer trainer;
+    /**
+     * Number of threads of a batch training, 0 to let Encog decide.
+     */
+    private final int trainingThreads;
+    @NotNull
+    private volatile TrainingMetrics trainingMetrics = TrainingMetrics.NONE;
+    /**
+     * Forecasts of the previous step, the input of the next training pair.
+     */
+    private final double[] lastForecasts;
+    private boolean hasLastForecasts = false;
+    /**
+     * Number of forecast methods, i.e. input neurons.
+     */
+    private final int inputs;
+    /**
+     * Reused input and output of the network.
+     */
+    private final double[] input;
+    private final double[] output = new double[1];
 
-    public ANNWeighting() {
-        this.network = ANNFactory.TYPES.FEED_FORWARD.create(DefaultForecastParameters.DEFAULT_FORECAST_METHODS.size(), hiddenNeurons, 1);
+    /**
+     * @param inputs          number of forecast methods
+     * @param online          {@code true} to update the network with every new pair instead of batch retraining
+     * @param networkType     type of the network
+     * @param trainer         algorithm of the batch training
+     * @param trainingThreads number of threads of a batch training, 0 to let Encog decide
+     */
+    public ANNWeighting(int inputs, boolean online, @NotNull ANNFactory.TYPES networkType, @NotNull ANNTrainer trainer,
+                        int trainingThreads) {
+        this.inputs = inputs;
+        this.online = online;
+        this.trainer = trainer;
+        this.trainingThreads = trainingThreads;
+        this.lastForecasts = new double[inputs];
+        this.input = new double[inputs];
+        this.localNetwork = networkType.create(inputs, hiddenNeurons, 1);
         trainingSet = new LimitedQueue<>(capacity);
+
+        if (online) {
+            this.onlineInput = new BasicMLData(inputs);
+            this.onlineIdeal = new BasicMLData(1);
+            BasicMLDataSet pair = new BasicMLDataSet();
+            pair.add(new BasicMLDataPair(this.onlineInput, this.onlineIdeal));
+
+            this.onlineTrainer = new Backpropagation(this.localNetwork, pair, ONLINE_LEARNING_RATE, ONLINE_MOMENTUM);
+            this.onlineTrainer.setThreadCount(1);
+        }
     }
 
-    public double run() {
-        if (forecasts.size() < DefaultForecastParameters.DEFAULT_FORECAST_METHODS.size()) {
-            return Double.NaN;
-        } else if (forecasts.contains(Double.NaN)) {
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        if (count < this.inputs || countValid(valid, count) < this.inputs) {
             return Double.NaN;
         }
-
-        if (!this.trainingSet.isFull()) {
-            if (!lastForecasts.isEmpty()) {
-                makeInputAndIdeal();
+        for (int i = 0; i < this.inputs; i++) {
+            if (Double.isNaN(forecasts[i])) {
+                return Double.NaN;
             }
-            lastForecasts = this.forecasts;
         }
 
-        if (!this.isANNTrained && this.trainingSet.isFull()) {
-            trainNetwork();
-            this.isANNTrained = true;
+        if (this.online) {
+            return combineOnline(forecasts);
+        }
+
+        if (this.hasLastForecasts) {
+            makeInputAndIdeal();
+            this.newPairs++;
+        }
+        System.arraycopy(forecasts, 0, this.lastForecasts, 0, this.inputs);
+        this.hasLastForecasts = true;
 
-            // force re-training after certain intervals (defined by the capacity)
-          //  this.trainingSet.clear();
+        if (this.trainingSet.isFull() && (this.network == null || this.newPairs >= RETRAIN_INTERVAL)) {
+            startTraining();
         }
 
-        if (this.isANNTrained) {
-            return getForecast();
+        BasicNetwork network = this.network;
+        if (network != null) {
+            return getForecast(network, forecasts);
         }
         return Double.NaN;
     }
 
-    private void makeInputAndIdeal() {
-        MLData input = new BasicMLData(this.lastForecasts.size());
-        for (int i = 0; i < this.lastForecasts.size(); i++) {
-            input.setData(i, lastForecasts.get(i));
+    /**
+     * Updates the network with the pair of the previous forecasts and the current actual value, then combines
+     * the new forecasts.
+     */
+    private double combineOnline(@NotNull double[] forecasts) {
+        if (this.hasLastForecasts) {
+            System.arraycopy(this.lastForecasts, 0, this.onlineInput.getData(), 0, this.inputs);
+            this.onlineIdeal.setData(0, lastTimeseries.getLastValue());
+            this.onlineTrainer.iteration();
+            this.onlineUpdates++;
         }
+        System.arraycopy(forecasts, 0, this.lastForecasts, 0, this.inputs);
+        this.hasLastForecasts = true;
+
+        if (this.onlineUpdates < this.capacity) {
+            return Double.NaN;
+        }
+        return getForecast(this.localNetwork, forecasts);
+    }
+
+    /**
+     * Trains a copy of the latest network on a snapshot of the training set in the background, unless a training
+     * is still running.
+     */
+    private void startTraining() {
+        if (this.training != null && !this.training.isDone()) {
+            return;
+        }
+
+        BasicNetwork current = this.network;
+        BasicNetwork network = (BasicNetwork) (current != null ? current : this.localNetwork).clone();
+        List<MLDataPair> pairs = new ArrayList<>(this.trainingSet);
+        this.newPairs = 0;
+
+        this.training = trainingExecutor.submit(() -> {
+            try {
+                this.trainingMetrics = trainNetwork(network, pairs);
+                this.network = network;
+            } catch (RuntimeException e) {
+                System.err.println("ANN training - " + e.getMessage());
+            }
+        });
+    }
+
+    private void makeInputAndIdeal() {
+        MLData input = new BasicMLData(this.lastForecasts);
 
         MLData ideal = new BasicMLData(1);
         ideal.setData(0, lastTimeseries.getLastValue());
@@ -89,23 +247,72 @@ public class ANNWeighting extends CombinationStrategy {
         this.trainingSet.add(new BasicMLDataPair(input, ideal));
     }
 
-    public double getForecast() {
-        MLData input = new BasicMLData(this.forecasts.size());
-        for (int i = 0; i < this.forecasts.size(); i++) {
-            input.setData(i, forecasts.get(i));
-        }
-
-        MLData output = this.network.compute(input);
-        return output.getData(0);
+    private double getForecast(@NotNull BasicNetwork network, @NotNull double[] forecasts) {
+        System.arraycopy(forecasts, 0, this.input, 0, this.inputs);
+        network.getFlat().compute(this.input, this.output);
+        return this.output[0];
     }
 
-    public void trainNetwork() {
-        Propagation train = new QuickPropagation(network, new BasicMLDataSet(trainingSet));
+    /**
+     * Trains the network on the older pairs until the error on the latest pairs stops improving, then restores
+     * the weights with the smallest error on the latest pairs.
+     */
+    @NotNull
+    private TrainingMetrics trainNetwork(@NotNull BasicNetwork network, @NotNull List<MLDataPair> pairs) {
+        long start = System.nanoTime();
+        int validationSize = (int) (pairs.size() * VALIDATION_FRACTION);
+        BasicMLDataSet trainingSet = new BasicMLDataSet(pairs.subList(0, pairs.size() - validationSize));
+        BasicMLDataSet validationSet = new BasicMLDataSet(pairs.subList(pairs.size() - validationSize, pairs.size()));
+
+        Propagation train = this.trainer.create(network, trainingSet);
+        train.setThreadCount(this.trainingThreads);
+
+        double[] weights = network.getFlat().getWeights();
+        double[] bestWeights = weights.clone();
+        double bestError = validationSize > 0 ? network.calculateError(validationSet) : Double.MAX_VALUE;
+        int epochsWithoutImprovement = 0;
 
         int epoch = 0;
         do {
             train.iteration();
             epoch++;
-        } while (train.getError() > 0.001 && epoch < 200);
+
+            if (validationSize > 0) {
+                double error = network.calculateError(validationSet);
+                if (error < bestError) {
+                    bestError = error;
+                    System.arraycopy(weights, 0, bestWeights, 0, weights.length);
+                    epochsWithoutImprovement = 0;
+                } else {
+                    epochsWithoutImprovement++;
+                }
+            }
+        } while (train.getError() > TARGET_ERROR && epoch < MAX_EPOCHS && epochsWithoutImprovement < PATIENCE);
+        train.finishTraining();
+
+        if (validationSize > 0) {
+            System.arraycopy(bestWeights, 0, weights, 0, weights.length);
+        }
+        return new TrainingMetrics(this.trainingMetrics.getTrainings() + 1, System.nanoTime() - start, epoch,
+                train.getError(), validationSize > 0 ? bestError : Double.NaN, epochsWithoutImprovement >= PATIENCE);
+    }
+
+    /**
+     * Stops the threads of the multithreaded trainings. They belong to the Encog engine, are shared by all
+     * strategies and keep the JVM alive, so call this at the end of the application if a strategy used more than
+     * one training thread.
+     *
+     * @param timeout milliseconds to wait for running trainings
+     */
+    public static void shutdownTrainingThreads(long timeout) {
+        EngineConcurrency.getInstance().shutdown(timeout);
+    }
+
+    /**
+     * @return result of the latest finished batch training
+     */
+    @NotNull
+    public TrainingMetrics getTrainingMetrics() {
+        return this.trainingMetrics;
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.combinationStrategies.ann;
+
+/**
+ * Result of the latest batch training of an {@link ANNWeighting}. Immutable, so it can be read while the next
+ * training runs.
+ *
+ * @author Matthias Sommer.
+ */
+public final class TrainingMetrics {
+    static final TrainingMetrics NONE = new TrainingMetrics(0, 0, 0, Double.NaN, Double.NaN, false);
+
+    private final int trainings;
+    private final long durationNanos;
+    private final int epochs;
+    private final double trainingError;
+    private final double validationError;
+    private final boolean stoppedEarly;
+
+    TrainingMetrics(int trainings, long durationNanos, int epochs, double trainingError, double validationError,
+                    boolean stoppedEarly) {
+        this.trainings = trainings;
+        this.durationNanos = durationNanos;
+        this.epochs = epochs;
+        this.trainingError = trainingError;
+        this.validationError = validationError;
+        this.stoppedEarly = stoppedEarly;
+    }
+
+    /**
+     * @return number of finished trainings of the strategy
+     */
+    public int getTrainings() {
+        return trainings;
+    }
+
+    /**
+     * @return wall-clock time of the latest training
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * @return error on the training pairs after the latest epoch
+     */
+    public double getTrainingError() {
+        return trainingError;
+    }
+
+    /**
+     * @return error of the kept network on the held-out pairs
+     */
+    public double getValidationError() {
+        return validationError;
+    }
+
+    /**
+     * @return {@code true} if the validation error stopped improving before the maximum number of epochs
+     */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    @Override
+    public String toString() {
+        return "trainings=" + trainings + " ms=" + durationNanos / 1e6 + " epochs=" + epochs
+                + " trainingError=" + trainingError + " validationError=" + validationError
+                + " stoppedEarly=" + stoppedEarly;
+    }
+}
@@ -73,14 +73,13 @@ public class XCSF extends CombinationStrategy {
      *
      * @return normalised feature vector
      */
-    private double[] generateSituation() {
-        if (forecasts == null) {
-            return new double[0];
-        }
-
-        double[] situation = new double[forecasts.size()];
-        for (int i = 0; i < forecasts.size(); i++) {
-            situation[i] = forecasts.get(i);
+    private double[] generateSituation(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        double[] situation = new double[countValid(valid, count)];
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            if (valid[i]) {
+                situation[k++] = forecasts[i];
+            }
         }
         return situation;
     }
@@ -206,8 +205,9 @@ public class XCSF extends CombinationStrategy {
         }
     }
 
-    public double run() {
-        this.situation = generateSituation();
+    public double combine(@NotNull double[] forecasts, @NotNull boolean[] valid, int count) {
+        // the situation is kept for the reward, so it is not a reused buffer
+        this.situation = generateSituation(forecasts, valid, count);
         // 1) get next problem instance
         StateDescriptor state = new StateDescriptor(situation, new double[]{mean(situation)});
 
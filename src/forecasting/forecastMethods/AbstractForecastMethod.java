@@ -8,10 +8,12 @@
 package forecasting.forecastMethods;
 
 import forecasting.ForecastMethodEvaluator;
+import forecasting.RSessionPool;
 import forecasting.RServeConnection;
 import org.apache.commons.lang3.ArrayUtils;
 import org.jetbrains.annotations.NotNull;
 import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPRaw;
 import org.rosuda.REngine.REngineException;
 import org.rosuda.REngine.RList;
 import org.rosuda.REngine.Rserve.RConnection;
@@ -28,9 +30,14 @@ import java.util.List;
  */
 public abstract class AbstractForecastMethod {
     /**
-     * RCaller interface, used to call R from Java
+     * R session of the running forecast, taken from the session pool by {@link #forecast(int)}.
      */
-    protected static final RConnection rConnection = RServeConnection.getConnection();
+    protected RConnection rConnection;
+    /**
+     * Pool the R sessions are taken from.
+     */
+    @NotNull
+    private RSessionPool sessionPool = RServeConnection.getSessionPool();
     /**
      * Confidence interval for the forecast.
      */
@@ -49,6 +56,20 @@ public abstract class AbstractForecastMethod {
      */
     protected int minObservations;
     private ForecastMethodEvaluator evaluator;
+    /**
+     * Decides when the model of {@link #runScheduledForecast(String, String, int)} is re-estimated.
+     */
+    @NotNull
+    private RefitScheduler refitScheduler = new RefitScheduler(1, 0);
+    /**
+     * Name of the R variable holding the model during a forecast, created on first use.
+     */
+    private String modelVariable;
+    /**
+     * The latest estimated model, serialised by R. It is kept here instead of in an R session, because every
+     * forecast may run in another session of the pool. {@code null} if there is no model.
+     */
+    private byte[] model;
 
     /**
      * Constructor for the {@link AbstractForecastMethod}.
@@ -64,10 +85,25 @@ public abstract class AbstractForecastMethod {
         return evaluator;
     }
 
+    /**
+     * @param sessionPool pool the R sessions of the forecasts are taken from
+     */
+    public void setSessionPool(@NotNull RSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    public void setRefitScheduler(@NotNull RefitScheduler refitScheduler) {
+        this.refitScheduler = refitScheduler;
+    }
+
     public void addActualValueToEvaluator(float timeStep, double value) {
         this.evaluator.addActualValueToPair(timeStep, value);
     }
 
+    public void addActualValuesToEvaluator(float[] timeSteps, double[] values, int offset, int length) {
+        this.evaluator.addActualValuesToPairs(timeSteps, values, offset, length);
+    }
+
     public final int getUniqueIdentifier() {
         return this.identifier;
     }
@@ -98,6 +134,46 @@ public abstract class AbstractForecastMethod {
      */
     public abstract double runForecast(int horizon) throws REngineException, REXPMismatchException;
 
+    /**
+     * Runs {@link #runForecast(int)} with an R session of the {@link forecasting.RSessionPool}, so that forecasts
+     * running on different threads do not overwrite each other's input. Waits if all sessions are in use.
+     *
+     * @param horizon to predict into the future
+     * @return forecast
+     */
+    public final double forecast(int horizon) throws REngineException, REXPMismatchException {
+        if (!requiresR()) {
+            return runForecast(horizon);
+        }
+
+        RSessionPool sessionPool = this.sessionPool;
+        RConnection session;
+        try {
+            session = sessionPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RserveException(null, "Interrupted while waiting for an R session");
+        }
+        if (session == null) {
+            throw new RserveException(null, "No R session available");
+        }
+
+        this.rConnection = session;
+        try {
+            return runForecast(horizon);
+        } finally {
+            this.rConnection = null;
+            sessionPool.release(session);
+        }
+    }
+
+    /**
+     * @return {@code false} if the method is implemented in Java and does not call R
+     */
+    public boolean requiresR() {
+        return true;
+    }
+
     public int getTimeSeriesLength() {
         return this.timeSeries.getSize();
     }
@@ -132,4 +208,77 @@ public abstract class AbstractForecastMethod {
         double[] mean = rList.at("mean").asDoubles();
         return mean[timeStep - 1];
     }
+
+    /**
+     * Runs a forecast whose model is only re-estimated when the {@link RefitScheduler} demands it. Otherwise the
+     * previous model is applied to the current input without re-estimating its parameters, which is much cheaper
+     * for methods like TBATS or auto.arima.
+     * <p>
+     * The estimated model is serialised to this method and passed to the session of each forecast, so it can be
+     * applied in any session of the pool. The model variable is removed from the session afterwards. If the
+     * scheduler re-estimates the model for every forecast, the model is fitted and applied in a single R call
+     * without serialising it.
+     *
+     * @param fit           R code estimating a new model on the input, e.g. {@code tbats(input)}
+     * @param applyFunction R function that applies a previous model, called as {@code applyFunction(input, model=...)}
+     * @param timeStep      to make a forecast
+     * @return the forecast for the given timestep
+     * @throws RserveException
+     * @throws REXPMismatchException
+     */
+    protected double runScheduledForecast(String fit, String applyFunction, int timeStep) throws RserveException, REXPMismatchException {
+        if (!this.refitScheduler.allowsReuse()) {
+            return runForecast("forecast(" + fit + ", h = " + timeStep + ")", timeStep);
+        }
+
+        if (this.modelVariable == null) {
+            this.modelVariable = RServeConnection.getUniqueVarname();
+        }
+
+        try {
+            boolean refit = this.model == null || this.refitScheduler.isRefitNeeded(this.evaluator);
+            if (!refit) {
+                try {
+                    rConnection.assign(this.modelVariable, new REXPRaw(this.model));
+                    rConnection.voidEval(this.modelVariable + " <- " + applyFunction + "(input, model=unserialize("
+                            + this.modelVariable + "))");
+                    this.refitScheduler.reused();
+                } catch (RserveException e) {
+                    // previous model cannot be applied to the current input
+                    refit = true;
+                }
+            }
+
+            if (refit) {
+                rConnection.voidEval(this.modelVariable + " <- " + fit);
+                this.refitScheduler.refitted(this.evaluator);
+                this.model = serialiseModel();
+            }
+
+            return runForecast("forecast(" + this.modelVariable + ", h = " + timeStep + ")", timeStep);
+        } finally {
+            removeModelVariable();
+        }
+    }
+
+    /**
+     * @return the model of the current session serialised by R, {@code null} if it cannot be serialised
+     */
+    private byte[] serialiseModel() {
+        try {
+            return rConnection.eval("serialize(" + this.modelVariable + ", NULL)").asBytes();
+        } catch (RserveException | REXPMismatchException e) {
+            System.err.println("Cannot serialise the model - " + e.getMessage());
+            this.refitScheduler.invalidate();
+            return null;
+        }
+    }
+
+    private void removeModelVariable() {
+        try {
+            rConnection.voidEval("if (exists(\"" + this.modelVariable + "\")) rm(" + this.modelVariable + ")");
+        } catch (RserveException e) {
+            System.err.println("Cannot remove the model - " + e.getMessage());
+        }
+    }
 }
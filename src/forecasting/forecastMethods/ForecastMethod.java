@@ -7,14 +7,15 @@
 
 package forecasting.forecastMethods;
 
+import forecasting.ForecastConfiguration;
 import forecasting.forecastMethods.arima.*;
+import forecasting.forecastMethods.other.KNearestNeighbourForecast;
 import forecasting.forecastMethods.other.MeanForecast;
 import forecasting.forecastMethods.other.RandomWalkForecast;
+import forecasting.forecastMethods.other.SeasonalProfileForecast;
 import forecasting.forecastMethods.smoothing.*;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
-
 /**
  * This enumeration lists all available forecast methods.
  *
@@ -24,133 +25,132 @@ public enum ForecastMethod {
     RANDOMWALK() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new RandomWalkForecast(timeSeries, observations);
         }
     }, MEAN() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new MeanForecast(timeSeries, observations);
         }
     }, MOVINGAVERAGE() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new MovingAverage(timeSeries, observations);
         }
     }, DOUBLEMOVINGAVERAGE() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new DoubleMovingAverage(timeSeries, observations);
         }
     }, ES() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new ExponentialSmoothing(timeSeries, observations);
         }
     }, DES() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new DoubleExponentialSmoothing(timeSeries, observations);
         }
     }, SEASONALEXPONENTIALSMOOTHING() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new SeasonalExponentialSmoothing(timeSeries, observations);
         }
     }, DOUBLESEASONALHOLTWINTERS() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new DoubleSeasonalHoltWinters(timeSeries, observations);
         }
     }, CUBICSPLINE() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new CubicSpline(timeSeries, observations);
         }
     }, CROSTON() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new Croston(timeSeries, observations);
         }
     }, TBATS() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new TBATS(timeSeries, observations);
         }
     }, BATS() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new BATS(timeSeries, observations);
         }
     }, ETS() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new ETS(timeSeries, observations);
         }
     }, SARIMA() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new Sarima(timeSeries, observations);
         }
     }, ARIMA() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new ARIMA(timeSeries, observations);
         }
     }, ARIMA101() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new ARIMA101(timeSeries, observations);
         }
     }, AUTOARIMA() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new AUTOARIMA(timeSeries, observations);
         }
     }, ARFIMA() {
         @NotNull
         public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
-            this.minDataPoints = observations;
             return new ARFIMA(timeSeries, observations);
         }
+    }, SEASONALPROFILE() {
+        @NotNull
+        public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
+            return new SeasonalProfileForecast(timeSeries, observations);
+        }
+    }, SEASONALNAIVE() {
+        @NotNull
+        public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
+            return new SeasonalProfileForecast(timeSeries, observations, 1.0);
+        }
+    }, KNN() {
+        @NotNull
+        public AbstractForecastMethod create(TimeSeriesStorage timeSeries, int observations) {
+            return new KNearestNeighbourForecast(timeSeries, observations);
+        }
     };
 
-    int minDataPoints = 0;
-
     /**
-     * Retrieve the biggest timeSeries size over all active forecast methods.
-     * Size of the moving window should be as large as the timeSeries of the forecastMethod
-     * having the largest size of historic values for prediction.
+     * Creates the forecast method at the given index of a configuration with its number of data points, its
+     * ARIMA parameters and its refit settings.
      *
-     * @param forecastMethods the forecast methods
-     * @return timeSeries size
+     * @param timeSeries    the time series storage of the forecast module
+     * @param configuration the configuration of the forecast module
+     * @param index         position of the method in the configuration
+     * @return the forecast method
      */
-    public static int getMaxDataPoints(@NotNull Collection<ForecastMethod> forecastMethods) {
-        if (forecastMethods.isEmpty()) {
-            return 0;
-        }
+    @NotNull
+    public AbstractForecastMethod create(TimeSeriesStorage timeSeries, @NotNull ForecastConfiguration configuration, int index) {
+        AbstractForecastMethod forecastMethod = create(timeSeries, configuration.getDataPoints(index));
 
-        int storageSize = 0;
-        for (ForecastMethod method : forecastMethods) {
-            storageSize = Math.max(method.minDataPoints, storageSize);
+        if (forecastMethod instanceof ARIMA) {
+            ((ARIMA) forecastMethod).setP(configuration.getP(index));
+            ((ARIMA) forecastMethod).setD(configuration.getD(index));
+            ((ARIMA) forecastMethod).setQ(configuration.getQ(index));
         }
-        return storageSize;
+
+        forecastMethod.setRefitScheduler(new RefitScheduler(configuration.getRefitMaxInterval(),
+                configuration.getRefitDriftThreshold()));
+        return forecastMethod;
     }
 
     @NotNull
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.forecastMethods;
+
+import forecasting.ForecastMethodEvaluator;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides whether a forecast method has to re-estimate its model or may apply the previous model to the
+ * current time series.
+ * <p>
+ * A model is re-estimated when it has served {@code maxInterval} forecasts or when the mean absolute error
+ * of the forecasts made since the last estimation exceeds the error level at the time of the estimation by
+ * more than {@code driftThreshold} (relative). A maximum interval of 1 re-estimates the model every step.
+ *
+ * @author Matthias Sommer
+ */
+public class RefitScheduler {
+    /**
+     * Maximum number of forecasts made with the same model.
+     */
+    private final int maxInterval;
+    /**
+     * Allowed relative increase of the mean absolute error before the model is re-estimated.
+     */
+    private final double driftThreshold;
+    /**
+     * Number of forecasts made with the current model, 0 if there is no model yet.
+     */
+    private int forecastsSinceRefit = 0;
+    /**
+     * Mean absolute error of the method when the current model was estimated.
+     */
+    private double baselineError = Double.NaN;
+
+    public RefitScheduler(int maxInterval, double driftThreshold) {
+        this.maxInterval = maxInterval;
+        this.driftThreshold = driftThreshold;
+    }
+
+    /**
+     * @return {@code false} if every forecast re-estimates the model, i.e. the maximum interval is at most 1
+     */
+    public boolean allowsReuse() {
+        return this.maxInterval > 1;
+    }
+
+    /**
+     * @param evaluator the evaluator of the forecast method
+     * @return {@code true} if the model has to be re-estimated
+     */
+    public boolean isRefitNeeded(@NotNull ForecastMethodEvaluator evaluator) {
+        if (this.forecastsSinceRefit == 0 || this.forecastsSinceRefit >= this.maxInterval) {
+            return true;
+        }
+
+        if (Double.isNaN(this.baselineError)) {
+            // no actual values were available at the time of the estimation
+            this.baselineError = evaluator.meanAbsoluteError(evaluator.getCapacity());
+            return false;
+        }
+
+        double recentError = evaluator.meanAbsoluteError(this.forecastsSinceRefit);
+        return !Double.isNaN(recentError) && recentError > this.baselineError * (1 + this.driftThreshold);
+    }
+
+    /**
+     * Records that the model was re-estimated.
+     */
+    public void refitted(@NotNull ForecastMethodEvaluator evaluator) {
+        this.forecastsSinceRefit = 1;
+        this.baselineError = evaluator.meanAbsoluteError(evaluator.getCapacity());
+    }
+
+    /**
+     * Records that the previous model was used for a forecast.
+     */
+    public void reused() {
+        this.forecastsSinceRefit++;
+    }
+
+    /**
+     * Forces a re-estimation at the next forecast, e.g. when the previous model could not be applied.
+     */
+    public void invalidate() {
+        this.forecastsSinceRefit = 0;
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.forecastMethods;
+
+/**
+ * This interface can be implemented to observe every value added to a {@link TimeSeriesStorage}.
+ * <p>
+ * Used by forecast methods that update their model incrementally instead of refitting on the moving window.
+ *
+ * @author Matthias Sommer
+ */
+public interface TimeSeriesListener {
+    /**
+     * Called once for every value added to the observed storage, in the order of arrival.
+     *
+     * @param timeStep time step of the value, consecutive values may skip or repeat time steps
+     * @param value    the new actual value
+     */
+    void valueAdded(float timeStep, double value);
+}
@@ -8,45 +8,226 @@
 package forecasting.forecastMethods;
 
 import org.jetbrains.annotations.NotNull;
-import tools.LimitedQueue;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A simple LIFO queue which stores the last n time series values.
+ * <p>
+ * The values are kept in a primitive ring buffer, optionally with single precision to halve its size. Forecast
+ * methods read them through a read-only list view.
  *
  * @author Matthias Sommer
  */
 public class TimeSeriesStorage {
     /**
-     * Stored values over a certain time span.
+     * Stored values over a certain time span, {@code null} in compact mode.
+     */
+    private double[] values;
+    /**
+     * Stored values in compact mode, {@code null} otherwise.
+     */
+    private float[] compactValues;
+    private int capacity;
+    /**
+     * Position of the oldest value.
+     */
+    private int head = 0;
+    private int size = 0;
+    /**
+     * Time step of the latest value, also if it did not fit into the window.
+     */
+    private float lastTimeStep = Float.NaN;
+    /**
+     * Number of values added so far, also the ones which did not fit into the window.
+     */
+    private long valueCount = 0;
+    /**
+     * Read-only view of the values handed out to the forecast methods.
      */
     @NotNull
-    private LimitedQueue<Double> values;
+    private final Window window = new Window();
+    /**
+     * Forecast methods which update their model with every new value.
+     */
+    @NotNull
+    private final List<TimeSeriesListener> listeners = new ArrayList<>(1);
 
     /**
      * Specifies the maximum number of entries in timeSeries.
      */
     public void setCapacity(final int capacity) {
-        this.values = new LimitedQueue<>(capacity);
+        setCapacity(capacity, false);
+    }
+
+    /**
+     * Specifies the maximum number of entries in timeSeries and their precision. Stored values are discarded.
+     *
+     * @param capacity maximum number of values
+     * @param compact  {@code true} to store the values with single precision
+     */
+    public void setCapacity(final int capacity, final boolean compact) {
+        this.capacity = capacity;
+        this.values = compact ? null : new double[capacity];
+        this.compactValues = compact ? new float[capacity] : null;
+        this.head = 0;
+        this.size = 0;
     }
 
     /**
-     * Add a value to the time series and return the moving average.
+     * Add a value to the time series and return the moving average. The value is assigned to the time step after
+     * the previous value.
      *
      * @param value to store
      * @return average or {@code NaN}
      */
     public final void addValue(final double value) {
-        this.values.add(value);
+        addValue(nextTimeStep(), value);
+    }
+
+    /**
+     * Add the value of the given time step to the time series. Listeners use the time step to detect missing or
+     * repeated values.
+     *
+     * @param timeStep time step of the value
+     * @param value    to store
+     */
+    public final void addValue(final float timeStep, final double value) {
+        store(value);
+        this.lastTimeStep = timeStep;
+        this.valueCount++;
+
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).valueAdded(timeStep, value);
+        }
+    }
+
+    /**
+     * Adds the values in the given order. Listeners are informed about every value, but only the values which
+     * still fit into the moving window are stored.
+     *
+     * @param timeSteps time steps of the values
+     * @param values    to store
+     * @param offset    index of the first value
+     * @param length    number of values
+     */
+    public final void addValues(@NotNull float[] timeSteps, @NotNull double[] values, int offset, int length) {
+        int firstStored = Math.max(offset, offset + length - this.capacity);
+
+        for (int i = offset; i < offset + length; i++) {
+            if (i >= firstStored) {
+                store(values[i]);
+            }
+            this.lastTimeStep = timeSteps[i];
+            this.valueCount++;
+            for (int j = 0; j < this.listeners.size(); j++) {
+                this.listeners.get(j).valueAdded(timeSteps[i], values[i]);
+            }
+        }
+    }
+
+    private float nextTimeStep() {
+        return Float.isNaN(this.lastTimeStep) ? 0 : this.lastTimeStep + 1;
+    }
+
+    /**
+     * @return time step of the latest value, {@code NaN} if no value has been added
+     */
+    public final float getLastTimeStep() {
+        return this.lastTimeStep;
+    }
+
+    /**
+     * @return number of values added so far, it changes with every new value even if the window is full
+     */
+    public final long getValueCount() {
+        return this.valueCount;
+    }
+
+    private void store(double value) {
+        if (this.capacity == 0) {
+            return;
+        }
+
+        int index = this.head + this.size;
+        if (this.size == this.capacity) {
+            // overwrite the oldest value
+            index = this.head;
+            this.head = (this.head + 1) % this.capacity;
+        } else {
+            this.size++;
+        }
+        index %= this.capacity;
+
+        if (this.values != null) {
+            this.values[index] = value;
+        } else {
+            this.compactValues[index] = (float) value;
+        }
+        this.window.changed();
+    }
+
+    /**
+     * @return {@code true} if the values are stored with single precision
+     */
+    public final boolean isCompact() {
+        return this.compactValues != null;
     }
 
     /**
+     * @param index position in the time series, 0 is the oldest value
+     * @return the value
+     */
+    public final double get(int index) {
+        int position = (this.head + index) % this.capacity;
+        return this.values != null ? this.values[position] : this.compactValues[position];
+    }
+
+    /**
+     * Registers a listener which is informed about every value added to this storage.
+     *
+     * @param listener to inform
+     */
+    public final void addListener(@NotNull TimeSeriesListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Returns a read-only live view of the time series. It changes with every added value, other threads
+     * should read the window of a {@link forecasting.ForecastSnapshot} instead.
+     *
      * @return the time series
      */
     @NotNull
     public final List<Double> getValues() {
-        return this.values;
+        return this.window;
+    }
+
+    /**
+     * @return copy of the time series, oldest value first
+     */
+    @NotNull
+    public final double[] toArray() {
+        double[] copy = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            copy[i] = get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * @return copy of the stored values with single precision, oldest first
+     */
+    @NotNull
+    public final float[] toFloatArray() {
+        float[] copy = new float[this.size];
+        for (int i = 0; i < this.size; i++) {
+            copy[i] = (float) get(i);
+        }
+        return copy;
     }
 
     /**
@@ -55,10 +236,10 @@ public class TimeSeriesStorage {
      * @return value or {@code NaN}
      */
     public final double getLastValue() {
-        if (this.values.isEmpty()) {
+        if (this.size == 0) {
             return Double.NaN;
         }
-        return this.values.getLast();
+        return get(this.size - 1);
     }
 
     /**
@@ -67,6 +248,28 @@ public class TimeSeriesStorage {
      * @return length of time series
      */
     public final int getSize() {
-        return this.values.size();
+        return this.size;
+    }
+
+    /**
+     * List view of the values, oldest first. Sub lists fail fast once a value is added.
+     */
+    private class Window extends AbstractList<Double> implements RandomAccess {
+        @Override
+        public Double get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return TimeSeriesStorage.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void changed() {
+            this.modCount++;
+        }
     }
 }
@@ -25,7 +25,7 @@ public class AUTOARIMA extends AbstractForecastMethod {
     public double runForecast(int timeStep) throws REngineException, REXPMismatchException {
         if (this.timeSeries.getSize() >= minObservations) {
             super.injectTimeSeries();
-            return runForecast("forecast(auto.arima(input, max.p=3, max.q=3), h = " + timeStep + ")", timeStep);
+            return runScheduledForecast("auto.arima(input, max.p=3, max.q=3)", "Arima", timeStep);
         }
         return Double.NaN;
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.forecastMethods.other;
+
+import forecasting.forecastMethods.AbstractForecastMethod;
+import forecasting.forecastMethods.TimeSeriesListener;
+import forecasting.forecastMethods.TimeSeriesStorage;
+import tools.VantagePointTree;
+
+/**
+ * Pattern matching forecast: the last m values are compared with all past windows of length m (delay
+ * embedding), the forecast is the average successor of the k most similar windows. No call to R is made.
+ * <p>
+ * Every value added to the time series storage is appended to the complete history and the window ending
+ * before it is inserted into a vantage point tree, so a forecast is a sub-linear search instead of a scan
+ * over the whole history. Suited for traffic data with recurring patterns.
+ * <p>
+ * Windows overlapping the query window are excluded from the search. They are trivial matches which resemble the
+ * query only because they share its values and would pull the forecast towards the last value.
+ * <p>
+ * Farmer and Sidorowich (1987) Predicting chaotic time series
+ *
+ * @author Matthias Sommer
+ */
+public class KNearestNeighbourForecast extends AbstractForecastMethod implements TimeSeriesListener, VantagePointTree.Metric {
+    /**
+     * Embedding dimension, number of values of a compared window (one hour of 5-minute values).
+     */
+    private final int dimension = 12;
+    /**
+     * Number of neighbours to average.
+     */
+    private final int neighbours = 5;
+    private final VantagePointTree index = new VantagePointTree(this);
+    private final int[] neighbourIds = new int[neighbours];
+    /**
+     * All observed values, a window is identified by the index of its last value.
+     */
+    private double[] history = new double[1024];
+    private int historySize = 0;
+
+    public KNearestNeighbourForecast(TimeSeriesStorage storage, int minObservations) {
+        super(storage);
+        this.minObservations = minObservations;
+        storage.addListener(this);
+    }
+
+    @Override
+    public void valueAdded(float timeStep, double value) {
+        if (this.historySize == this.history.length) {
+            double[] grown = new double[this.history.length * 2];
+            System.arraycopy(this.history, 0, grown, 0, this.historySize);
+            this.history = grown;
+        }
+        this.history[this.historySize++] = value;
+
+        // the window ending before the new value now has a known successor
+        int window = this.historySize - 2;
+        if (window >= this.dimension - 1 && isValid(window) && !Double.isNaN(value)) {
+            this.index.add(window);
+        }
+    }
+
+    private boolean isValid(int window) {
+        for (int i = window - this.dimension + 1; i <= window; i++) {
+            if (Double.isNaN(this.history[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Euclidean distance between the windows ending at a and b.
+     */
+    @Override
+    public double distance(int a, int b) {
+        double sum = 0;
+        for (int i = 0; i < this.dimension; i++) {
+            double difference = this.history[a - i] - this.history[b - i];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    @Override
+    public boolean requiresR() {
+        return false;
+    }
+
+    @Override
+    public double runForecast(int timeStep) {
+        int query = this.historySize - 1;
+        if (this.timeSeries.getSize() < minObservations || query < this.dimension - 1 || !isValid(query)) {
+            return Double.NaN;
+        }
+
+        // successor timeStep values ahead has to be known and the window must not overlap the query
+        int found = this.index.nearest(query, this.neighbours, query - Math.max(timeStep, this.dimension),
+                this.neighbourIds);
+        if (found < this.neighbours) {
+            return Double.NaN;
+        }
+
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < found; i++) {
+            double successor = this.history[this.neighbourIds[i] + timeStep];
+            if (!Double.isNaN(successor)) {
+                sum += successor;
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+}
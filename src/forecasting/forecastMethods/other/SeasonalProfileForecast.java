@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.forecastMethods.other;
+
+import forecasting.forecastMethods.AbstractForecastMethod;
+import forecasting.forecastMethods.TimeSeriesListener;
+import forecasting.forecastMethods.TimeSeriesStorage;
+
+import java.util.Arrays;
+
+/**
+ * Forecasts by looking up an exponentially weighted time-of-day x day-of-week profile.
+ * <p>
+ * The profile is updated in O(1) with every value added to the time series storage, a forecast is a single
+ * array lookup. No call to R is made. Designed for traffic counts with strong daily and weekly patterns,
+ * e.g. the 5-minute data in timeseries/TrafficData (288 values per day).
+ * <p>
+ * The slot of a value is derived from its time step, which counts the 5-minute intervals since the start of a
+ * week (time step 0). Missing or repeated values therefore do not shift the later slots. As long as the weekly
+ * slot of the forecast time has not been observed yet, the daily profile is used instead. A smoothing factor of 1
+ * turns the method into a seasonal naive forecast (latest value of the same slot).
+ * <p>
+ * If the storage keeps its values with single precision, the profiles do so as well, which halves the memory of
+ * the method.
+ *
+ * @author Matthias Sommer
+ */
+public class SeasonalProfileForecast extends AbstractForecastMethod implements TimeSeriesListener {
+    /**
+     * Number of values per day, 288 for 5-minute intervals.
+     */
+    private final int samplesPerDay = 288;
+    private final int daysPerWeek = 7;
+    private final int slotsPerWeek = samplesPerDay * daysPerWeek;
+    /**
+     * Smoothing factor, 0 < alpha <= 1. The higher it gets, the more weight is given to recent observations.
+     */
+    private final double alpha;
+    /**
+     * Smoothed value per time-of-day and day-of-week slot, followed by the smoothed value per time-of-day slot
+     * which is used until a weekly slot has been observed. {@code NaN} for slots without a value. {@code null} in
+     * compact mode.
+     */
+    private final double[] profiles;
+    /**
+     * The profiles in compact mode, {@code null} otherwise.
+     */
+    private final float[] compactProfiles;
+    /**
+     * Time step of the latest value, {@code NaN} before the first value.
+     */
+    private float lastTimeStep = Float.NaN;
+
+    public SeasonalProfileForecast(TimeSeriesStorage storage, int minObservations) {
+        this(storage, minObservations, 0.2);
+    }
+
+    public SeasonalProfileForecast(TimeSeriesStorage storage, int minObservations, double alpha) {
+        super(storage);
+        this.minObservations = minObservations;
+        this.alpha = alpha;
+        this.profiles = storage.isCompact() ? null : new double[slotsPerWeek + samplesPerDay];
+        this.compactProfiles = storage.isCompact() ? new float[slotsPerWeek + samplesPerDay] : null;
+        if (this.profiles != null) {
+            Arrays.fill(this.profiles, Double.NaN);
+        } else {
+            Arrays.fill(this.compactProfiles, Float.NaN);
+        }
+        storage.addListener(this);
+    }
+
+    @Override
+    public void valueAdded(float timeStep, double value) {
+        int weeklySlot = weeklySlot(timeStep);
+        int dailySlot = this.slotsPerWeek + weeklySlot % this.samplesPerDay;
+
+        setProfile(weeklySlot, smooth(getProfile(weeklySlot), value));
+        setProfile(dailySlot, smooth(getProfile(dailySlot), value));
+        this.lastTimeStep = timeStep;
+    }
+
+    private int weeklySlot(double timeStep) {
+        return (int) Math.floorMod(Math.round(timeStep), (long) this.slotsPerWeek);
+    }
+
+    private double getProfile(int slot) {
+        return this.profiles != null ? this.profiles[slot] : this.compactProfiles[slot];
+    }
+
+    private void setProfile(int slot, double value) {
+        if (this.profiles != null) {
+            this.profiles[slot] = value;
+        } else {
+            this.compactProfiles[slot] = (float) value;
+        }
+    }
+
+    private double smooth(double oldValue, double value) {
+        if (Double.isNaN(oldValue)) {
+            return value;
+        }
+        if (Double.isNaN(value)) {
+            return oldValue;
+        }
+        return this.alpha * value + (1 - this.alpha) * oldValue;
+    }
+
+    @Override
+    public boolean requiresR() {
+        return false;
+    }
+
+    @Override
+    public double runForecast(int timeStep) {
+        if (this.timeSeries.getSize() < minObservations || Float.isNaN(this.lastTimeStep)) {
+            return Double.NaN;
+        }
+
+        int weeklySlot = weeklySlot((double) this.lastTimeStep + timeStep);
+        double forecast = getProfile(weeklySlot);
+        if (Double.isNaN(forecast)) {
+            return getProfile(this.slotsPerWeek + weeklySlot % this.samplesPerDay);
+        }
+        return forecast;
+    }
+}
@@ -23,7 +23,7 @@ public class BATS extends AbstractForecastMethod {
         if (this.timeSeries.getSize() >= minObservations) {
             super.injectTimeSeries();
 
-            return runForecast("forecast(bats(input), h = " + timeStep + ")", timeStep);
+            return runScheduledForecast("bats(input)", "bats", timeStep);
         }
         return Double.NaN;
     }
@@ -70,7 +70,7 @@ public class ETS extends AbstractForecastMethod {
             //holt is a wrapper function for forecast(ets(<holt params>))
             StringBuilder sb = new StringBuilder();
 
-            sb.append("forecast(ets(input,");
+            sb.append("ets(input,");
             String model = "\"" + errorType + trendType + seasonType + "\"";
             sb.append(model);
 
@@ -98,9 +98,9 @@ public class ETS extends AbstractForecastMethod {
                 sb.append(", phi=").append(phi);
             }
 
-            sb.append("), h=").append(timeStep).append(")");
+            sb.append(")");
 
-            return runForecast(sb.toString(), timeStep);
+            return runScheduledForecast(sb.toString(), "ets", timeStep);
         }
 
         return Double.NaN;
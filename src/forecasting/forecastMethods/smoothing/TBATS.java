@@ -27,7 +27,7 @@ public class TBATS extends AbstractForecastMethod {
         if (this.timeSeries.getSize() >= minObservations) {
             super.injectTimeSeries();
 
-            return runForecast("forecast(tbats(input), h = " + timeStep + ")", timeStep);
+            return runScheduledForecast("tbats(input)", "tbats", timeStep);
         }
         return Double.NaN;
     }
@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.sharding;
+
+import forecasting.ForecastConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tools.ConsistentHashRing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Forecasts many series with several local worker processes, each with its own heap and R sessions.
+ * <p>
+ * The series are partitioned by consistent hashing of their ids, values are forwarded to the {@link ShardWorker}
+ * of the series over loopback sockets and the forecasts of all workers are collected per tick. The coordinator
+ * keeps the moving window of every series. If a worker fails, it is restarted and the windows of its series are
+ * replayed; if it fails too often, it is removed from the hash ring and only its series move to the remaining
+ * workers, again by replaying their windows.
+ * <p>
+ * The coordinator is not thread-safe, it is driven by one thread.
+ *
+ * @author Matthias Sommer
+ */
+public class ShardCoordinator {
+    /**
+     * Number of points per worker on the hash ring.
+     */
+    private static final int VIRTUAL_NODES = 64;
+    /**
+     * Number of restarts of a worker before its series are moved to the other workers.
+     */
+    private static final int MAX_RESTARTS = 3;
+    /**
+     * Time to wait for a started worker to connect.
+     */
+    private static final int CONNECT_TIMEOUT = 60000;
+    /**
+     * Default time to wait for an answer of a connected worker before it is treated as failed.
+     */
+    private static final int RESPONSE_TIMEOUT = 300000;
+    /**
+     * Rserve ports of the workers are spaced by this offset, so that they do not share an Rserve instance.
+     */
+    private static final int RSERVE_PORT_OFFSET = 100;
+
+    @NotNull
+    private final ServerSocket server;
+    @NotNull
+    private final String propertyFolder;
+    private final int threadsPerWorker;
+    @NotNull
+    private final List<String> jvmOptions;
+    @NotNull
+    private final Worker[] workers;
+    @NotNull
+    private final ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+    /**
+     * Moving window of every series, replayed when the series moves to another worker.
+     */
+    @NotNull
+    private final Map<String, ReplayWindow> windows = new HashMap<>();
+    private final int windowSize;
+    /**
+     * Identifies the process of a worker start, so that a late connection of a replaced process is rejected.
+     */
+    @NotNull
+    private final Random tokens = new Random();
+    private int responseTimeout = RESPONSE_TIMEOUT;
+
+    /**
+     * Starts the worker processes.
+     *
+     * @param propertyFolder   folder of the forecast.properties file
+     * @param workers          number of worker processes
+     * @param threadsPerWorker number of threads and R sessions of each worker
+     * @param jvmOptions       options of the worker JVMs, e.g. the heap size
+     * @throws IOException if a worker cannot be started
+     */
+    public ShardCoordinator(String propertyFolder, int workers, int threadsPerWorker, @NotNull List<String> jvmOptions) throws IOException {
+        this.propertyFolder = propertyFolder;
+        this.threadsPerWorker = threadsPerWorker;
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+        this.windowSize = Math.max(1, ForecastConfiguration.readPropertyFile(propertyFolder).getMaxDataPoints());
+
+        this.server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+        this.server.setSoTimeout(CONNECT_TIMEOUT);
+
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(i);
+        }
+        try {
+            for (Worker worker : this.workers) {
+                startProcess(worker);
+            }
+            acceptWorkers(new ArrayList<>(Arrays.asList(this.workers)));
+        } catch (IOException e) {
+            // do not leave the already started processes behind
+            shutdown();
+            throw e;
+        }
+        for (int i = 0; i < workers; i++) {
+            this.ring.addNode(i);
+        }
+    }
+
+    public ShardCoordinator(String propertyFolder, int workers, int threadsPerWorker) throws IOException {
+        this(propertyFolder, workers, threadsPerWorker, Collections.emptyList());
+    }
+
+    /**
+     * Starts a new process for the worker with a new token.
+     */
+    private void startProcess(@NotNull Worker worker) throws IOException {
+        worker.token = this.tokens.nextLong();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(this.jvmOptions);
+        command.add("-Dforecasting.rservePort=" + (6311 + (worker.index + 1) * RSERVE_PORT_OFFSET));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(String.valueOf(this.server.getLocalPort()));
+        command.add(String.valueOf(worker.index));
+        command.add(this.propertyFolder);
+        command.add(String.valueOf(this.threadsPerWorker));
+        command.add(String.valueOf(worker.token));
+
+        worker.process = new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Accepts connections until the started processes of the given workers have identified themselves with their
+     * index and token. Other connections, e.g. of a process replaced after a failure, are closed.
+     *
+     * @param pending workers without connection, emptied by this method
+     */
+    private void acceptWorkers(@NotNull List<Worker> pending) throws IOException {
+        while (!pending.isEmpty()) {
+            Socket socket = this.server.accept();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(CONNECT_TIMEOUT);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int index = in.readInt();
+                long token = in.readLong();
+
+                Worker worker = findPending(pending, index, token);
+                if (worker != null) {
+                    socket.setSoTimeout(this.responseTimeout);
+                    worker.socket = socket;
+                    worker.in = in;
+                    worker.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    pending.remove(worker);
+                    continue;
+                }
+                System.err.println("Rejected connection of an outdated process of shard worker " + index);
+            } catch (IOException e) {
+                System.err.println("Connection of a shard worker failed - " + e.getMessage());
+            }
+            socket.close();
+        }
+    }
+
+    @Nullable
+    private static Worker findPending(@NotNull List<Worker> pending, int index, long token) {
+        for (Worker worker : pending) {
+            if (worker.index == index && worker.token == token) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the time to wait for an answer of a worker, e.g. for its forecasts. A worker which does not answer in
+     * time is treated as failed and restarted.
+     *
+     * @param millis timeout in milliseconds, 0 to wait forever
+     * @throws IOException if the timeout cannot be set
+     */
+    public void setResponseTimeout(int millis) throws IOException {
+        this.responseTimeout = millis;
+        for (Worker worker : this.workers) {
+            if (worker.socket != null) {
+                worker.socket.setSoTimeout(millis);
+            }
+        }
+    }
+
+    /**
+     * Adds the actual value of a series. Values are forwarded to the worker in batches, at the latest with the
+     * next forecast.
+     *
+     * @param seriesId identifier of the series, e.g. the detector id
+     * @param timeStep current time step
+     * @param value    current actual value
+     */
+    public void addValue(@NotNull String seriesId, float timeStep, double value) {
+        ReplayWindow window = this.windows.computeIfAbsent(seriesId, id -> new ReplayWindow(this.windowSize));
+        window.add(timeStep, value);
+
+        // the window would lose values which were not sent yet
+        if (window.unsent == this.windowSize) {
+            sendValues(seriesId, window, window.unsent);
+        }
+    }
+
+    /**
+     * Computes the combined forecasts of all series which received a value since their last forecast. The
+     * workers compute their forecasts in parallel. Series of a failed worker, or of a worker which does not
+     * answer within the response timeout, are missing in the result.
+     *
+     * @param time             the current time step
+     * @param horizon          horizon for which we want the forecast
+     * @param timestepForecast the time the forecast is made for
+     * @return combined forecast per series id
+     */
+    @NotNull
+    public Map<String, Double> forecast(float time, int horizon, float timestepForecast) {
+        for (Map.Entry<String, ReplayWindow> entry : this.windows.entrySet()) {
+            if (entry.getValue().unsent > 0) {
+                sendValues(entry.getKey(), entry.getValue(), entry.getValue().unsent);
+            }
+        }
+
+        List<Worker> requested = new ArrayList<>(this.workers.length);
+        for (Worker worker : this.workers) {
+            if (!this.ring.containsNode(worker.index)) {
+                continue;
+            }
+            try {
+                worker.out.writeByte(ShardWorker.FORECAST);
+                worker.out.writeFloat(time);
+                worker.out.writeInt(horizon);
+                worker.out.writeFloat(timestepForecast);
+                worker.out.flush();
+                requested.add(worker);
+            } catch (IOException e) {
+                handleFailure(worker, e);
+            }
+        }
+
+        Map<String, Double> forecasts = new HashMap<>(this.windows.size() * 2);
+        for (Worker worker : requested) {
+            try {
+                int count = worker.in.readInt();
+                for (int i = 0; i < count; i++) {
+                    forecasts.put(worker.in.readUTF(), worker.in.readDouble());
+                }
+            } catch (IOException e) {
+                handleFailure(worker, e);
+            }
+        }
+        return forecasts;
+    }
+
+    /**
+     * Sends the latest values of the window to the worker of the series.
+     */
+    private void sendValues(@NotNull String seriesId, @NotNull ReplayWindow window, int count) {
+        Worker worker = getWorker(seriesId);
+        if (worker == null) {
+            return;
+        }
+
+        try {
+            worker.out.writeByte(ShardWorker.VALUES);
+            worker.out.writeUTF(seriesId);
+            worker.out.writeInt(count);
+            window.write(worker.out, count);
+            window.unsent = 0;
+        } catch (IOException e) {
+            // the replay after the restart contains the values
+            handleFailure(worker, e);
+        }
+    }
+
+    @Nullable
+    private Worker getWorker(@NotNull String seriesId) {
+        int index = this.ring.getNode(seriesId);
+        return index < 0 ? null : this.workers[index];
+    }
+
+    /**
+     * Restarts a failed worker and replays the windows of its series. After too many restarts the worker is
+     * removed from the ring and its series are replayed to their new workers.
+     */
+    private void handleFailure(@NotNull Worker worker, @NotNull IOException cause) {
+        System.err.println("Shard worker " + worker.index + " failed - " + cause);
+        // a hung worker does not react to a termination request
+        worker.close(true);
+
+        List<String> affected = new ArrayList<>();
+        for (String seriesId : this.windows.keySet()) {
+            if (this.ring.getNode(seriesId) == worker.index) {
+                affected.add(seriesId);
+            }
+        }
+
+        if (!restart(worker)) {
+            System.err.println("Shard worker " + worker.index + " removed, moving " + affected.size() + " series");
+            this.ring.removeNode(worker.index);
+        }
+
+        for (String seriesId : affected) {
+            ReplayWindow window = this.windows.get(seriesId);
+            sendValues(seriesId, window, window.size());
+        }
+    }
+
+    private boolean restart(@NotNull Worker worker) {
+        while (worker.restarts < MAX_RESTARTS) {
+            worker.restarts++;
+            try {
+                startProcess(worker);
+                acceptWorkers(new ArrayList<>(Collections.singletonList(worker)));
+                return true;
+            } catch (IOException e) {
+                System.err.println("Restart of shard worker " + worker.index + " failed - " + e.getMessage());
+                worker.close(true);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of workers which own series
+     */
+    public int getActiveWorkers() {
+        int active = 0;
+        for (Worker worker : this.workers) {
+            if (this.ring.containsNode(worker.index)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @param seriesId identifier of the series
+     * @return index of the worker which forecasts the series, -1 if there is none
+     */
+    public int getWorkerIndex(@NotNull String seriesId) {
+        return this.ring.getNode(seriesId);
+    }
+
+    /**
+     * Stops all workers.
+     */
+    public void shutdown() {
+        for (Worker worker : this.workers) {
+            if (worker.out != null) {
+                try {
+                    worker.out.writeByte(ShardWorker.SHUTDOWN);
+                    worker.out.flush();
+                } catch (IOException e) {
+                    // worker is already gone
+                }
+            }
+            worker.close(false);
+        }
+        try {
+            this.server.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static class Worker {
+        private final int index;
+        private Process process;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int restarts = 0;
+        /**
+         * Token of the latest started process.
+         */
+        private long token;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @param kill {@code true} to kill the process instead of asking it to terminate
+         */
+        void close(boolean kill) {
+            if (this.socket != null) {
+                try {
+                    this.socket.close();
+                } catch (IOException e) {
+                    // already closed
+                }
+            }
+            if (this.process != null) {
+                if (kill) {
+                    this.process.destroyForcibly();
+                } else {
+                    this.process.destroy();
+                }
+            }
+            this.socket = null;
+            this.in = null;
+            this.out = null;
+        }
+    }
+
+    /**
+     * Latest values of a series in a ring buffer, with the number of values not yet sent to the worker.
+     */
+    private static class ReplayWindow {
+        private final float[] timeSteps;
+        private final double[] values;
+        private int next = 0;
+        private int size = 0;
+        private int unsent = 0;
+
+        ReplayWindow(int capacity) {
+            this.timeSteps = new float[capacity];
+            this.values = new double[capacity];
+        }
+
+        void add(float timeStep, double value) {
+            this.timeSteps[this.next] = timeStep;
+            this.values[this.next] = value;
+            this.next = (this.next + 1) % this.values.length;
+            this.size = Math.min(this.size + 1, this.values.length);
+            this.unsent = Math.min(this.unsent + 1, this.values.length);
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * Writes the latest values, oldest first.
+         */
+        void write(@NotNull DataOutputStream out, int count) throws IOException {
+            int start = this.next - count + this.values.length;
+            for (int i = 0; i < count; i++) {
+                int index = (start + i) % this.values.length;
+                out.writeFloat(this.timeSteps[index]);
+                out.writeDouble(this.values[index]);
+            }
+        }
+    }
+}
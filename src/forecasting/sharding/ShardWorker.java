@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015 Matthias Sommer, All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package forecasting.sharding;
+
+import forecasting.ForecastService;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+
+/**
+ * Worker process of the {@link ShardCoordinator}. Forecasts the series of one shard with a {@link ForecastService}
+ * and answers the requests of the coordinator over a local socket.
+ * <p>
+ * Protocol, all messages are sent by the coordinator and processed in order:
+ * <ul>
+ * <li>{@link #VALUES}: series id, number of values, (time step, value) pairs; no answer</li>
+ * <li>{@link #FORECAST}: time, horizon, time step of the forecast; answered with the number of forecasts and
+ * the (series id, forecast) pairs of all series which received values since the last forecast</li>
+ * <li>{@link #SHUTDOWN}: the worker exits</li>
+ * </ul>
+ *
+ * @author Matthias Sommer
+ */
+public class ShardWorker {
+    static final byte VALUES = 1;
+    static final byte FORECAST = 2;
+    static final byte SHUTDOWN = 3;
+
+    @NotNull
+    private final ForecastService service;
+
+    private ShardWorker(String propertyFolder, int threads) {
+        this.service = new ForecastService(propertyFolder, threads);
+    }
+
+    /**
+     * @param args port of the coordinator, index of the shard, folder of the property file, number of threads,
+     *             token of this process
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        int shard = Integer.parseInt(args[1]);
+        String propertyFolder = args[2];
+        int threads = Integer.parseInt(args[3]);
+        long token = Long.parseLong(args[4]);
+
+        ShardWorker worker = new ShardWorker(propertyFolder, threads);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            out.writeInt(shard);
+            out.writeLong(token);
+            out.flush();
+            worker.serve(in, out);
+        } finally {
+            worker.service.shutdown();
+        }
+    }
+
+    private void serve(@NotNull DataInputStream in, @NotNull DataOutputStream out) throws IOException {
+        float[] timeSteps = new float[0];
+        double[] values = new double[0];
+
+        while (true) {
+            byte message;
+            try {
+                message = in.readByte();
+            } catch (EOFException e) {
+                // coordinator is gone
+                return;
+            }
+
+            switch (message) {
+                case VALUES:
+                    String seriesId = in.readUTF();
+                    int count = in.readInt();
+                    if (timeSteps.length != count) {
+                        timeSteps = new float[count];
+                        values = new double[count];
+                    }
+                    for (int i = 0; i < count; i++) {
+                        timeSteps[i] = in.readFloat();
+                        values[i] = in.readDouble();
+                    }
+                    this.service.addValues(seriesId, timeSteps, values);
+                    break;
+                case FORECAST:
+                    float time = in.readFloat();
+                    int horizon = in.readInt();
+                    float timestepForecast = in.readFloat();
+
+                    Map<String, Double> forecasts = this.service.forecast(time, horizon, timestepForecast);
+                    out.writeInt(forecasts.size());
+                    for (Map.Entry<String, Double> entry : forecasts.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeDouble(entry.getValue());
+                    }
+                    out.flush();
+                    break;
+                case SHUTDOWN:
+                    return;
+                default:
+                    throw new IOException("Unknown message " + message);
+            }
+        }
+    }
+}
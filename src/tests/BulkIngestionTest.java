@@ -0,0 +1,49 @@
+package tests;
+
+import forecasting.ForecastConfiguration;
+import forecasting.ForecastModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the bulk ingestion of values with adding them one by one.
+ */
+public class BulkIngestionTest {
+    private static final int BATCH = 96;
+
+    @Test
+    public void bulkIngestionEqualsSingleValues() {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Arrays.asList(ForecastMethod.SEASONALPROFILE, ForecastMethod.SEASONALNAIVE), Arrays.asList(300, 300))
+                .withCombinationStrategy(Strategies.SIMPLE_AVERAGE)
+                .withSpeculativeForecasting(false);
+        ForecastModule single = new ForecastModule(configuration);
+        ForecastModule bulk = new ForecastModule(configuration);
+
+        Random random = new Random(5);
+        float[] timeSteps = new float[BATCH];
+        double[] values = new double[BATCH];
+
+        for (int step = 0; step < 288 * 21; step += BATCH) {
+            for (int i = 0; i < BATCH; i++) {
+                timeSteps[i] = step + i;
+                values[i] = 100 + Math.sin((step + i) * 2 * Math.PI / 288) * 50 + random.nextGaussian() * 5;
+
+                single.addValue(timeSteps[i], values[i]);
+                single.addValueToEvaluators(timeSteps[i], values[i]);
+            }
+            bulk.addValues(timeSteps, values);
+            bulk.addValuesToEvaluators(timeSteps, values);
+
+            float last = timeSteps[BATCH - 1];
+            assertEquals(single.combinedForecast(last, 1, last + 1), bulk.combinedForecast(last, 1, last + 1), 1e-9);
+        }
+        assertEquals(single.combinedForecastError(), bulk.combinedForecastError(), 1e-9);
+    }
+}
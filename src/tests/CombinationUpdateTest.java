@@ -0,0 +1,130 @@
+package tests;
+
+import Jama.Matrix;
+import forecasting.ErrorStatistics;
+import forecasting.ForecastConfiguration;
+import forecasting.ForecastModule;
+import forecasting.combinationStrategies.CombinationModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import forecasting.forecastMethods.TimeSeriesStorage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the strategies learning from the latest errors use each error once, however often they combine
+ * before the next actual value arrives.
+ */
+public class CombinationUpdateTest {
+    private static final List<ForecastMethod> METHODS = Arrays.asList(ForecastMethod.SEASONALPROFILE,
+            ForecastMethod.SEASONALNAIVE, ForecastMethod.KNN);
+    private static final int STEPS = 1000;
+    private static final int COVARIANCE_WINDOW = 48;
+
+    @Test
+    public void hedgeUsesEachErrorOnce() {
+        double[][] weights = run(Strategies.HEDGE, new ArrayList<>());
+        // the weights of the worse methods decay exponentially, their logarithms keep the differences visible
+        for (int i = 0; i < METHODS.size(); i++) {
+            assertEquals(Math.log(weights[0][i]), Math.log(weights[1][i]), 1e-9);
+        }
+    }
+
+    @Test
+    public void covarianceWeightsEqualInverseOfWindow() {
+        List<double[]> errors = new ArrayList<>();
+        double[][] weights = run(Strategies.OPTIMALWEIGHTS_COVARIANCE, errors);
+        assertArrayEquals(weights[0], weights[1], 1e-12);
+
+        // S = ridge * I + sum(e * e') over the last window, the ridge is fixed by the first full window
+        int n = METHODS.size();
+        Matrix first = new Matrix(n, n);
+        for (double[] error : errors.subList(0, COVARIANCE_WINDOW)) {
+            first.plusEquals(outer(error));
+        }
+        double ridge = 1e-3 * first.trace() / n;
+        Matrix covariance = Matrix.identity(n, n).times(ridge);
+        for (double[] error : errors.subList(errors.size() - COVARIANCE_WINDOW, errors.size())) {
+            covariance.plusEquals(outer(error));
+        }
+
+        Matrix inverseSums = covariance.inverse().times(new Matrix(n, 1, 1.0));
+        double total = sum(inverseSums);
+        assertEquals(n, weights[0].length);
+        for (int i = 0; i < n; i++) {
+            assertEquals(inverseSums.get(i, 0) / total, weights[0][i], 1e-9);
+        }
+    }
+
+    /**
+     * Combines the forecasts of a module with two instances of the strategy, the second one combines every step
+     * twice.
+     *
+     * @param errors receives the error vectors of the steps in which every method has an error
+     * @return last weights of the instance combining once and of the one combining twice
+     */
+    private static double[][] run(Strategies strategy, List<double[]> errors) {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(METHODS, Collections.nCopies(METHODS.size(), 20))
+                .withCombinationStrategy(Strategies.SIMPLE_AVERAGE)
+                .withSpeculativeForecasting(false)
+                .withEnsemblePruning(false, 0, 0)
+                .withFootprint(false, false);
+        ForecastModule module = new ForecastModule(configuration);
+        ErrorStatistics statistics = module.getErrorStatistics();
+
+        CombinationModule once = new CombinationModule(configuration.withCombinationStrategy(strategy));
+        CombinationModule twice = new CombinationModule(configuration.withCombinationStrategy(strategy));
+        once.setErrorStatistics(statistics);
+        twice.setErrorStatistics(statistics);
+
+        TimeSeriesStorage timeSeries = new TimeSeriesStorage();
+        timeSeries.setCapacity(1);
+        double[] forecasts = new double[METHODS.size()];
+        boolean[] valid = new boolean[METHODS.size()];
+        for (int step = 0; step < STEPS; step++) {
+            double value = 100 + 40 * Math.sin(2 * Math.PI * step / 288.0) + (step * 7919 % 13);
+            module.addValue(step, value);
+            module.addValueToEvaluators(step, value);
+            timeSeries.addValue(step, value);
+            module.combinedForecast(step, 1, step + 1);
+
+            double[] error = new double[METHODS.size()];
+            boolean complete = true;
+            for (int i = 0; i < METHODS.size(); i++) {
+                forecasts[i] = module.getForecasts().get(i);
+                valid[i] = !Double.isNaN(forecasts[i]);
+                error[i] = statistics.getLastError(i);
+                complete &= !Double.isNaN(error[i]);
+            }
+            if (complete) {
+                errors.add(error);
+            }
+
+            once.getCombinedForecast(forecasts, valid, step, timeSeries);
+            twice.getCombinedForecast(forecasts, valid, step, timeSeries);
+            twice.getCombinedForecast(forecasts, valid, step, timeSeries);
+        }
+        return new double[][]{once.getLastWeights(), twice.getLastWeights()};
+    }
+
+    private static Matrix outer(double[] vector) {
+        Matrix column = new Matrix(vector, vector.length);
+        return column.times(column.transpose());
+    }
+
+    private static double sum(Matrix column) {
+        double sum = 0;
+        for (int i = 0; i < column.getRowDimension(); i++) {
+            sum += column.get(i, 0);
+        }
+        return sum;
+    }
+}
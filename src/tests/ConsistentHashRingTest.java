@@ -0,0 +1,65 @@
+package tests;
+
+import org.junit.Test;
+import tools.ConsistentHashRing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that adding or removing a node of the consistent hash ring only moves the keys of that node.
+ */
+public class ConsistentHashRingTest {
+    private static final int NODES = 5;
+    private static final int KEYS = 10000;
+
+    @Test
+    public void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing ring = createRing();
+        int[] before = nodes(ring);
+
+        ring.removeNode(2);
+        int[] after = nodes(ring);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (before[i] == 2) {
+                assertTrue(after[i] != 2);
+                moved++;
+            } else {
+                assertEquals(before[i], after[i]);
+            }
+        }
+        // with virtual nodes every node owns a similar share
+        assertTrue(moved > KEYS / NODES / 2 && moved < KEYS / NODES * 2);
+    }
+
+    @Test
+    public void addingNodeOnlyTakesKeys() {
+        ConsistentHashRing ring = createRing();
+        int[] before = nodes(ring);
+
+        ring.addNode(NODES);
+        int[] after = nodes(ring);
+
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(after[i] == before[i] || after[i] == NODES);
+        }
+    }
+
+    private static ConsistentHashRing createRing() {
+        ConsistentHashRing ring = new ConsistentHashRing(64);
+        for (int node = 0; node < NODES; node++) {
+            ring.addNode(node);
+        }
+        return ring;
+    }
+
+    private static int[] nodes(ConsistentHashRing ring) {
+        int[] nodes = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            nodes[i] = ring.getNode("detector-" + i);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,97 @@
+package tests;
+
+import forecasting.DeadlineScheduler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the earliest-deadline-first order on an executor which starts a thread per task, as virtual threads do.
+ */
+public class DeadlineSchedulerTest {
+
+    @Test
+    public void runsEarliestDeadlineFirst() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            DeadlineScheduler scheduler = new DeadlineScheduler(executor, 1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<Long> order = Collections.synchronizedList(new ArrayList<>());
+
+            // occupy the dispatcher
+            List<CompletableFuture<Double>> results = new ArrayList<>();
+            results.add(scheduler.schedule(0, deadline -> {
+                blocked.countDown();
+                await(release);
+                return 0;
+            }));
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            long now = System.nanoTime();
+            for (int i = 20; i > 0; i--) {
+                results.add(scheduler.schedule(now + i, deadline -> {
+                    order.add(deadline - now);
+                    return deadline - now;
+                }));
+            }
+            assertEquals(20, scheduler.getQueuedRequests());
+            release.countDown();
+
+            for (CompletableFuture<Double> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i + 1, (long) order.get(i));
+            }
+            assertEquals(21, scheduler.getCompletedRequests());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorsCompleteTheResult() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            DeadlineScheduler scheduler = new DeadlineScheduler(executor, 1);
+            CompletableFuture<Double> failed = scheduler.schedule(System.nanoTime(), deadline -> {
+                throw new StackOverflowError();
+            });
+            try {
+                failed.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+
+            // the dispatcher keeps running
+            assertEquals(1, scheduler.schedule(System.nanoTime(), deadline -> 1).get(10, TimeUnit.SECONDS), 0);
+            assertTrue(Double.isNaN(scheduler.schedule(System.nanoTime(), deadline -> {
+                throw new IllegalStateException();
+            }).get(10, TimeUnit.SECONDS)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package tests;
+
+import forecasting.EnsemblePruner;
+import forecasting.ForecastConfiguration;
+import forecasting.ForecastModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the ensemble pruner keeps a method active if all methods make the same forecasts.
+ */
+public class EnsemblePrunerTest {
+    private static final int METHODS = 3;
+
+    @Test
+    public void identicalForecastersAreNotAllSuspended() {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Collections.nCopies(METHODS, ForecastMethod.SEASONALNAIVE), Collections.nCopies(METHODS, 10))
+                .withCombinationStrategy(Strategies.SIMPLE_AVERAGE)
+                .withSpeculativeForecasting(false)
+                .withEnsemblePruning(true, 0.01, 288)
+                .withFootprint(false, false);
+        ForecastModule module = new ForecastModule(configuration);
+        EnsemblePruner pruner = module.getEnsemblePruner();
+
+        int suspended = 0;
+        for (int step = 0; step < 288 * 3; step++) {
+            double value = 100 + 50 * Math.sin(step * 2 * Math.PI / 288) + step % 7;
+            module.addValue(step, value);
+            module.addValueToEvaluators(step, value);
+            double forecast = module.combinedForecast(step, 1, step + 1);
+
+            int active = 0;
+            for (int i = 0; i < METHODS; i++) {
+                active += pruner.isActive(i) ? 1 : 0;
+            }
+            assertTrue(active > 0);
+            suspended = Math.max(suspended, METHODS - active);
+            if (step >= 288) {
+                assertFalse(Double.isNaN(forecast));
+            }
+        }
+        // the identical methods do not pay off
+        assertTrue(suspended > 0);
+    }
+}
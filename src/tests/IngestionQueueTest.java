@@ -0,0 +1,60 @@
+package tests;
+
+import org.junit.Test;
+import tools.IngestionQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks order and loss accounting of the ingestion queue with a concurrent producer.
+ */
+public class IngestionQueueTest {
+    private static final int VALUES = 2_000_000;
+
+    @Test
+    public void rejectKeepsOldestValues() {
+        IngestionQueue queue = new IngestionQueue(4, IngestionQueue.OverflowPolicy.REJECT);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        assertFalse(queue.offer(4, 4));
+        assertEquals(1, queue.getRejected());
+
+        float[] timeSteps = new float[8];
+        double[] values = new double[8];
+        assertEquals(4, queue.drainTo(timeSteps, values));
+        assertEquals(0, values[0], 0);
+        assertEquals(3, values[3], 0);
+    }
+
+    @Test
+    public void concurrentDropOldestPreservesOrder() throws InterruptedException {
+        IngestionQueue queue = new IngestionQueue(64, IngestionQueue.OverflowPolicy.DROP_OLDEST);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < VALUES; i++) {
+                queue.offer(i, i);
+            }
+        });
+        producer.start();
+
+        float[] timeSteps = new float[16];
+        double[] values = new double[16];
+        long received = 0;
+        double last = -1;
+        while (producer.isAlive() || queue.size() > 0) {
+            int count = queue.drainTo(timeSteps, values);
+            for (int i = 0; i < count; i++) {
+                assertTrue(values[i] > last);
+                assertEquals(values[i], timeSteps[i], 0);
+                last = values[i];
+            }
+            received += count;
+        }
+        producer.join();
+
+        assertEquals(VALUES - 1, last, 0);
+        assertEquals(VALUES, received + queue.getDropped());
+    }
+}
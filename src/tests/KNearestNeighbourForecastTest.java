@@ -0,0 +1,61 @@
+package tests;
+
+import forecasting.forecastMethods.TimeSeriesStorage;
+import forecasting.forecastMethods.other.KNearestNeighbourForecast;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the k-nearest-neighbour forecast with a linear scan over the windows which do not overlap the query.
+ */
+public class KNearestNeighbourForecastTest {
+    private static final int DIMENSION = 12;
+    private static final int NEIGHBOURS = 5;
+
+    @Test
+    public void forecastEqualsLinearScanWithoutTrivialMatches() {
+        Random random = new Random(11);
+        double[] values = new double[600];
+        // random walk, the most recent windows are the closest ones
+        for (int i = 1; i < values.length; i++) {
+            values[i] = values[i - 1] + random.nextGaussian();
+        }
+
+        TimeSeriesStorage storage = new TimeSeriesStorage();
+        storage.setCapacity(DIMENSION);
+        KNearestNeighbourForecast forecast = new KNearestNeighbourForecast(storage, DIMENSION);
+
+        for (int i = 0; i < values.length; i++) {
+            storage.addValue(i, values[i]);
+            if (i > 100 && i % 37 == 0) {
+                for (int horizon : new int[]{1, 3, 20}) {
+                    assertEquals(linearScan(values, i, horizon), forecast.runForecast(horizon), 1e-9);
+                }
+            }
+        }
+    }
+
+    private static double linearScan(double[] values, int query, int horizon) {
+        int maxId = query - Math.max(horizon, DIMENSION);
+        double[][] candidates = new double[maxId - DIMENSION + 2][];
+        for (int window = DIMENSION - 1; window <= maxId; window++) {
+            double sum = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                double difference = values[query - i] - values[window - i];
+                sum += difference * difference;
+            }
+            candidates[window - DIMENSION + 1] = new double[]{sum, values[window + horizon]};
+        }
+        Arrays.sort(candidates, (a, b) -> Double.compare(a[0], b[0]));
+
+        double sum = 0;
+        for (int i = 0; i < NEIGHBOURS; i++) {
+            sum += candidates[i][1];
+        }
+        return sum / NEIGHBOURS;
+    }
+}
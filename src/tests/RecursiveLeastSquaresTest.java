@@ -0,0 +1,74 @@
+package tests;
+
+import forecasting.ForecastConfiguration;
+import forecasting.combinationStrategies.CombinationModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import forecasting.forecastMethods.TimeSeriesStorage;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the recursive least squares combination finds the weights of an exact linear relation between the
+ * individual forecasts and the actual value.
+ */
+public class RecursiveLeastSquaresTest {
+    private static final double[] TRUE_WEIGHTS = {0.7, -0.2, 0.5};
+
+    @Test
+    public void learnsExactLinearCombination() {
+        learnsExactLinearCombination(1);
+    }
+
+    @Test
+    public void repeatedCombinationsDoNotReuseTheActualValue() {
+        learnsExactLinearCombination(3);
+    }
+
+    /**
+     * @param combinations number of combinations of the same forecasts before the next actual value arrives
+     */
+    private static void learnsExactLinearCombination(int combinations) {
+        Random random = new Random(5);
+        int methods = TRUE_WEIGHTS.length;
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Collections.nCopies(methods, ForecastMethod.SEASONALNAIVE), Collections.nCopies(methods, 10))
+                .withCombinationStrategy(Strategies.RECURSIVE_LEAST_SQUARES)
+                .withRecursiveLeastSquares(0.99, false)
+                .withFootprint(false, false);
+        CombinationModule module = new CombinationModule(configuration);
+
+        TimeSeriesStorage timeSeries = new TimeSeriesStorage();
+        timeSeries.setCapacity(1);
+        boolean[] valid = {true, true, true};
+        double[] forecasts = new double[methods];
+
+        double combined = Double.NaN;
+        double actual = Double.NaN;
+        for (int step = 0; step < 2000; step++) {
+            if (step > 0) {
+                // the actual value of the previous forecasts arrives before the next combination
+                timeSeries.addValue(actual);
+            }
+
+            actual = 0;
+            for (int i = 0; i < methods; i++) {
+                forecasts[i] = 100 + 50 * random.nextDouble();
+                actual += TRUE_WEIGHTS[i] * forecasts[i];
+            }
+            for (int i = 0; i < combinations; i++) {
+                combined = module.getCombinedForecast(forecasts, valid, step, timeSeries);
+            }
+        }
+
+        assertEquals(actual, combined, 1e-6);
+        double[] weights = module.getLastWeights();
+        for (int i = 0; i < methods; i++) {
+            assertEquals(TRUE_WEIGHTS[i], weights[i], 1e-6);
+        }
+    }
+}
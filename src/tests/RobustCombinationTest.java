@@ -0,0 +1,100 @@
+package tests;
+
+import forecasting.ForecastConfiguration;
+import forecasting.combinationStrategies.CombinationModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import forecasting.forecastMethods.TimeSeriesStorage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the selection based median, trimmed and winsorized mean with a sort of the valid forecasts.
+ */
+public class RobustCombinationTest {
+    private static final double TRIM = 0.2;
+
+    @Test
+    public void selectionEqualsSortedReference() {
+        Random random = new Random(3);
+        TimeSeriesStorage timeSeries = new TimeSeriesStorage();
+        timeSeries.setCapacity(1);
+
+        for (int methods = 1; methods <= 12; methods++) {
+            CombinationModule median = create(Strategies.MEDIAN, methods);
+            CombinationModule trimmed = create(Strategies.TRIMMED_MEAN, methods);
+            CombinationModule winsorized = create(Strategies.WINSORIZED_MEAN, methods);
+
+            for (int run = 0; run < 200; run++) {
+                double[] forecasts = new double[methods];
+                boolean[] valid = new boolean[methods];
+                for (int i = 0; i < methods; i++) {
+                    // few distinct values to test duplicates
+                    forecasts[i] = random.nextInt(8);
+                    valid[i] = random.nextInt(4) != 0;
+                }
+                double[] input = forecasts.clone();
+
+                double[] sorted = sortedValid(forecasts, valid);
+                assertEquals(median(sorted), median.getCombinedForecast(forecasts, valid, run, timeSeries), 1e-9);
+                assertEquals(trimmedMean(sorted, false), trimmed.getCombinedForecast(forecasts, valid, run, timeSeries), 1e-9);
+                assertEquals(trimmedMean(sorted, true), winsorized.getCombinedForecast(forecasts, valid, run, timeSeries), 1e-9);
+                assertArrayEquals(input, forecasts, 0);
+            }
+        }
+    }
+
+    private static CombinationModule create(Strategies strategy, int methods) {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Collections.nCopies(methods, ForecastMethod.SEASONALNAIVE), Collections.nCopies(methods, 10))
+                .withCombinationStrategy(strategy)
+                .withTrimFraction(TRIM)
+                .withFootprint(false, false);
+        return new CombinationModule(configuration);
+    }
+
+    private static double[] sortedValid(double[] forecasts, boolean[] valid) {
+        double[] values = new double[forecasts.length];
+        int size = 0;
+        for (int i = 0; i < forecasts.length; i++) {
+            if (valid[i]) {
+                values[size++] = forecasts[i];
+            }
+        }
+        values = Arrays.copyOf(values, size);
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static double median(double[] sorted) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int middle = sorted.length / 2;
+        return sorted.length % 2 != 0 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double trimmedMean(double[] sorted, boolean winsorize) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int trim = Math.min((int) Math.floor(TRIM * sorted.length), (sorted.length - 1) / 2);
+
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            int index = winsorize ? Math.max(trim, Math.min(sorted.length - trim - 1, i)) : i;
+            if (winsorize || (i >= trim && i < sorted.length - trim)) {
+                sum += sorted[index];
+                count++;
+            }
+        }
+        return sum / count;
+    }
+}
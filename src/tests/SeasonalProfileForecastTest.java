@@ -0,0 +1,60 @@
+package tests;
+
+import forecasting.forecastMethods.TimeSeriesStorage;
+import forecasting.forecastMethods.other.SeasonalProfileForecast;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the slots of the seasonal profile follow the time steps of the values, not their count.
+ */
+public class SeasonalProfileForecastTest {
+    private static final int SAMPLES_PER_DAY = 288;
+
+    @Test
+    public void missingAndRepeatedValuesDoNotShiftSlots() {
+        TimeSeriesStorage storage = new TimeSeriesStorage();
+        storage.setCapacity(10);
+        SeasonalProfileForecast forecast = new SeasonalProfileForecast(storage, 1, 1.0);
+
+        // two days with one missing and one repeated value on the first day
+        for (int step = 0; step < 2 * SAMPLES_PER_DAY - 10; step++) {
+            if (step == 50) {
+                continue;
+            }
+            storage.addValue(step, dailyPattern(step));
+            if (step == 100) {
+                storage.addValue(step, dailyPattern(step));
+            }
+        }
+
+        for (int horizon = 1; horizon <= 5; horizon++) {
+            int step = 2 * SAMPLES_PER_DAY - 11 + horizon;
+            assertEquals(dailyPattern(step), forecast.runForecast(horizon), 0);
+        }
+    }
+
+    @Test
+    public void usesWeeklySlotOnceObserved() {
+        TimeSeriesStorage storage = new TimeSeriesStorage();
+        storage.setCapacity(10);
+        SeasonalProfileForecast forecast = new SeasonalProfileForecast(storage, 1, 1.0);
+
+        storage.addValue(0, 1);
+        storage.addValue(SAMPLES_PER_DAY - 1, 2);
+        // only the daily slot of the next day is known
+        assertEquals(1, forecast.runForecast(1), 0);
+        assertTrue(Double.isNaN(forecast.runForecast(2)));
+
+        storage.addValue(7 * SAMPLES_PER_DAY - 1, 3);
+        storage.addValue(7 * SAMPLES_PER_DAY + 5, 4);
+        // slot 0 of the second week was observed a week ago
+        assertEquals(1, forecast.runForecast(7 * SAMPLES_PER_DAY - 5), 0);
+    }
+
+    private static double dailyPattern(int step) {
+        return step % SAMPLES_PER_DAY;
+    }
+}
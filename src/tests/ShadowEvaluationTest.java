@@ -0,0 +1,83 @@
+package tests;
+
+import forecasting.ForecastConfiguration;
+import forecasting.ForecastModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the errors of shadow strategies with the errors of the same strategies as combination strategy.
+ */
+public class ShadowEvaluationTest {
+    private static final Strategies[] SHADOWS = {Strategies.MEDIAN, Strategies.HEDGE, Strategies.RECURSIVE_LEAST_SQUARES};
+
+    @Test
+    public void shadowErrorsEqualPrimaryErrors() {
+        compareWithPrimaries(Strategies.SIMPLE_AVERAGE, false, SHADOWS);
+    }
+
+    @Test
+    public void shadowsIgnoreForecastsOutsideTheirMask() {
+        // Outperformance marks the methods without a forecast as valid; the seasonal naive forecasts are NaN for
+        // the slots of the missing values one day later, i.e. in the last steps
+        compareWithPrimaries(Strategies.OUTPERFORMANCE, true, Strategies.SIMPLE_AVERAGE, Strategies.FORECAST_ERROR,
+                Strategies.OPTIMALWEIGHTS, Strategies.HEDGE, Strategies.RECURSIVE_LEAST_SQUARES);
+    }
+
+    /**
+     * Compares the errors of the shadow strategies of a module with the errors of modules with the shadow
+     * strategies as their combination strategy.
+     *
+     * @param missingValues {@code true} to leave out the values of the steps 250 to 299
+     */
+    private static void compareWithPrimaries(Strategies strategy, boolean missingValues, Strategies... shadows) {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Arrays.asList(ForecastMethod.SEASONALNAIVE, ForecastMethod.KNN),
+                        Arrays.asList(48, 20))
+                .withSpeculativeForecasting(false)
+                .withEnsemblePruning(false, 0, 0)
+                .withFootprint(false, false);
+
+        ForecastModule primary = new ForecastModule(configuration.withCombinationStrategy(strategy)
+                .withShadowStrategies(Arrays.asList(shadows)));
+        ForecastModule[] references = new ForecastModule[shadows.length];
+        for (int i = 0; i < shadows.length; i++) {
+            references[i] = new ForecastModule(configuration.withCombinationStrategy(shadows[i])
+                    .withShadowStrategies(Collections.emptyList()));
+        }
+
+        for (int step = 0; step < 550; step++) {
+            if (missingValues && step >= 250 && step < 300) {
+                continue;
+            }
+            double value = 100 + 40 * Math.sin(2 * Math.PI * step / 24.0) + (step * 7919 % 13);
+            add(primary, step, value);
+            for (ForecastModule reference : references) {
+                add(reference, step, value);
+            }
+        }
+
+        Map<Strategies, Double> errors = primary.getShadowErrors();
+        assertEquals(shadows.length, errors.size());
+        for (int i = 0; i < shadows.length; i++) {
+            assertFalse(shadows[i].name(), Double.isNaN(errors.get(shadows[i])));
+            assertEquals(shadows[i].name(), references[i].combinedForecastError(), errors.get(shadows[i]), 1e-12);
+        }
+        assertTrue(references[0].getShadowErrors().isEmpty());
+    }
+
+    private static void add(ForecastModule module, int step, double value) {
+        module.addValue(step, value);
+        module.addValueToEvaluators(step, value);
+        module.combinedForecast(step, 1, step + 1);
+    }
+}
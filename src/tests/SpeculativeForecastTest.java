@@ -0,0 +1,72 @@
+package tests;
+
+import forecasting.ForecastConfiguration;
+import forecasting.ForecastModule;
+import forecasting.combinationStrategies.Strategies;
+import forecasting.forecastMethods.ForecastMethod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares speculative forecasts with forecasts computed on demand, in the call order of the forecast service
+ * (addValue, addValueToEvaluators, combinedForecast), in the order of the readme (addValueToEvaluators, addValue,
+ * combinedForecast) and without evaluator updates.
+ */
+public class SpeculativeForecastTest {
+    private static final int STEPS = 288 * 8;
+
+    @Test
+    public void speculativeForecastsEqualForecastsOnDemand() {
+        compareWithForecastsOnDemand(true, false);
+    }
+
+    @Test
+    public void evaluatorsUpdatedBeforeTheTimeSeries() {
+        compareWithForecastsOnDemand(true, true);
+    }
+
+    @Test
+    public void withoutEvaluatorUpdates() {
+        compareWithForecastsOnDemand(false, false);
+    }
+
+    /**
+     * @param evaluate        {@code true} to add the actual values to the evaluators
+     * @param evaluatorsFirst {@code true} to add them to the evaluators before the time series
+     */
+    private static void compareWithForecastsOnDemand(boolean evaluate, boolean evaluatorsFirst) {
+        ForecastConfiguration configuration = ForecastConfiguration.fromDefaults()
+                .withForecastMethods(Arrays.asList(ForecastMethod.SEASONALPROFILE, ForecastMethod.SEASONALNAIVE, ForecastMethod.KNN),
+                        Arrays.asList(300, 300, 20))
+                .withCombinationStrategy(Strategies.OPTIMALWEIGHTS)
+                .withEnsemblePruning(false, 0, 0)
+                .withFootprint(false, false);
+        ForecastModule onDemand = new ForecastModule(configuration.withSpeculativeForecasting(false));
+        ForecastModule speculative = new ForecastModule(configuration.withSpeculativeForecasting(true));
+
+        Random random = new Random(7);
+        for (int step = 0; step < STEPS; step++) {
+            double value = 100 + Math.sin(step * 2 * Math.PI / 288) * 50 + random.nextGaussian() * 5;
+            for (ForecastModule module : new ForecastModule[]{onDemand, speculative}) {
+                if (evaluate && evaluatorsFirst) {
+                    module.addValueToEvaluators(step, value);
+                }
+                module.addValue(step, value);
+                if (evaluate && !evaluatorsFirst) {
+                    module.addValueToEvaluators(step, value);
+                }
+            }
+
+            assertEquals(onDemand.combinedForecast(step, 1, step + 1), speculative.combinedForecast(step, 1, step + 1), 1e-9);
+        }
+        assertEquals(onDemand.combinedForecastError(), speculative.combinedForecastError(), 1e-9);
+        assertEquals(0, onDemand.getSpeculationHits());
+        // speculations which have not started when the forecast is needed are computed on demand instead
+        assertTrue(speculative.getSpeculationHits() > 0);
+    }
+}
@@ -0,0 +1,75 @@
+package tests;
+
+import org.junit.Test;
+import tools.VantagePointTree;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the incremental vantage point tree with a linear scan.
+ */
+public class VantagePointTreeTest {
+    private final double[] values = new double[2000];
+
+    @Test
+    public void nearestNeighboursEqualLinearScan() {
+        Random random = new Random(3);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 20.0) * 100 + random.nextGaussian() * 5;
+        }
+
+        VantagePointTree.Metric metric = (a, b) -> Math.abs(values[a] - values[b]);
+        VantagePointTree tree = new VantagePointTree(metric);
+
+        int k = 5;
+        int[] result = new int[k];
+        for (int i = 0; i < values.length; i++) {
+            if (i > k && i % 97 == 0) {
+                int found = tree.nearest(i, k, i - 1, result);
+                assertEquals(k, found);
+                assertArrayEquals(linearScan(metric, i, k, i - 1), sortedDistances(metric, i, result, found), 1e-9);
+            }
+            tree.add(i);
+        }
+        assertEquals(values.length, tree.size());
+    }
+
+    @Test
+    public void ignoresPointsAfterMaxId() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        VantagePointTree tree = new VantagePointTree((a, b) -> Math.abs(values[a] - values[b]));
+        for (int i = 0; i < 100; i++) {
+            tree.add(i);
+        }
+
+        int[] result = new int[3];
+        int found = tree.nearest(99, 3, 50, result);
+        assertEquals(3, found);
+        Arrays.sort(result);
+        assertArrayEquals(new double[]{48, 49, 50}, new double[]{result[0], result[1], result[2]}, 0);
+    }
+
+    private double[] linearScan(VantagePointTree.Metric metric, int query, int k, int maxId) {
+        double[] distances = new double[maxId + 1];
+        for (int i = 0; i <= maxId; i++) {
+            distances[i] = metric.distance(query, i);
+        }
+        Arrays.sort(distances);
+        return Arrays.copyOf(distances, k);
+    }
+
+    private double[] sortedDistances(VantagePointTree.Metric metric, int query, int[] ids, int found) {
+        double[] distances = new double[found];
+        for (int i = 0; i < found; i++) {
+            distances[i] = metric.distance(query, ids[i]);
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+}
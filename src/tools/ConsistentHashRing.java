@@ -0,0 +1,80 @@
+package tools;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of keys onto nodes. Every node is placed at several points of a hash ring (virtual nodes),
+ * a key belongs to the next node clockwise of its hash. Adding or removing a node only moves the keys of the
+ * ring segments it owns, all other keys keep their node.
+ */
+public class ConsistentHashRing {
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int virtualNodes;
+
+    /**
+     * @param virtualNodes number of points per node, more points give a more even distribution
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Places a node on the ring.
+     *
+     * @param node identifier of the node
+     */
+    public void addNode(int node) {
+        for (int i = 0; i < this.virtualNodes; i++) {
+            this.ring.put(hash("node-" + node + "#" + i), node);
+        }
+    }
+
+    /**
+     * Removes a node, its keys move to the following nodes.
+     *
+     * @param node identifier of the node
+     */
+    public void removeNode(int node) {
+        this.ring.values().removeIf(value -> value == node);
+    }
+
+    public boolean containsNode(int node) {
+        return this.ring.containsValue(node);
+    }
+
+    /**
+     * @param key the key, e.g. a series id
+     * @return node of the key or -1 if the ring is empty
+     */
+    public int getNode(String key) {
+        if (this.ring.isEmpty()) {
+            return -1;
+        }
+
+        Map.Entry<Long, Integer> entry = this.ring.ceilingEntry(hash(key));
+        if (entry == null) {
+            entry = this.ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * 64 bit FNV-1a hash with a final avalanche step, so that similar keys spread over the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
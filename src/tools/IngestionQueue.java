@@ -0,0 +1,152 @@
+package tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of (time step, value) pairs between one producer thread, e.g. the thread receiving
+ * the values of a detector, and one consumer thread at a time, e.g. the forecast worker of the series.
+ * <p>
+ * The values are stored in primitive ring buffers, neither side allocates or blocks. If the queue is full, the
+ * {@link OverflowPolicy} decides whether the new value is rejected or the oldest value is dropped. To drop a
+ * value the producer advances the read position itself; the consumer validates its copy with a compare-and-set
+ * of the read position and copies again if the producer overwrote the values meanwhile.
+ *
+ * @author Matthias Sommer
+ */
+public class IngestionQueue {
+    /**
+     * What happens to a value offered to a full queue.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The new value is not stored, the producer has to handle the backpressure.
+         */
+        REJECT,
+        /**
+         * The oldest value is dropped in favour of the new one.
+         */
+        DROP_OLDEST
+    }
+
+    private final float[] timeSteps;
+    private final double[] values;
+    private final int mask;
+    private final OverflowPolicy policy;
+    /**
+     * Position of the next value to read, advanced by the consumer and by the producer when dropping a value.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Position of the next value to write, only advanced by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int maxDepth = 0;
+
+    /**
+     * @param capacity maximum number of queued values, rounded up to a power of two
+     * @param policy   what happens to a value offered to a full queue
+     */
+    public IngestionQueue(int capacity, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.timeSteps = new float[size];
+        this.values = new double[size];
+        this.mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Appends a value. Must only be called by one thread at a time.
+     *
+     * @param timeStep time step of the value
+     * @param value    the value
+     * @return {@code false} if the queue is full and the value was rejected
+     */
+    public boolean offer(float timeStep, double value) {
+        long t = this.tail.get();
+        long h = this.head.get();
+
+        while (t - h == this.values.length) {
+            if (this.policy == OverflowPolicy.REJECT) {
+                this.rejected.incrementAndGet();
+                return false;
+            }
+            if (this.head.compareAndSet(h, h + 1)) {
+                this.dropped.incrementAndGet();
+                break;
+            }
+            // the consumer took values meanwhile
+            h = this.head.get();
+        }
+
+        int index = (int) t & this.mask;
+        this.timeSteps[index] = timeStep;
+        this.values[index] = value;
+        this.tail.lazySet(t + 1);
+
+        int depth = (int) (t + 1 - this.head.get());
+        if (depth > this.maxDepth) {
+            this.maxDepth = depth;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the queued values, oldest first, into the given arrays. Must only be called by one thread at a time.
+     *
+     * @param timeSteps receives the time steps
+     * @param values    receives the values
+     * @return number of moved values, at most the length of the arrays
+     */
+    public int drainTo(float[] timeSteps, double[] values) {
+        while (true) {
+            long h = this.head.get();
+            long t = this.tail.get();
+            int count = (int) Math.min(t - h, Math.min(timeSteps.length, values.length));
+
+            for (int i = 0; i < count; i++) {
+                int index = (int) (h + i) & this.mask;
+                timeSteps[i] = this.timeSteps[index];
+                values[i] = this.values[index];
+            }
+
+            // fails if the producer dropped values, which may have been overwritten during the copy
+            if (count == 0 || this.head.compareAndSet(h, h + count)) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * @return number of queued values
+     */
+    public int size() {
+        return (int) Math.max(0, this.tail.get() - this.head.get());
+    }
+
+    public int getCapacity() {
+        return this.values.length;
+    }
+
+    /**
+     * @return number of values dropped in favour of newer ones
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * @return number of values rejected because the queue was full
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * @return highest number of queued values observed by the producer
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+}
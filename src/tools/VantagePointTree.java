@@ -0,0 +1,261 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Vantage point tree for k-nearest-neighbour searches in an arbitrary metric space.
+ * <p>
+ * Points are identified by int ids, distances are provided by a {@link Metric}. The index is maintained
+ * incrementally with the logarithmic method (Bentley and Saxe): level i holds either nothing or a static tree
+ * of 2^i points. An insertion merges the occupied low levels into the next free one, so the amortised
+ * insertion cost is O(log^2 n) and a query searches at most log n trees.
+ * <p>
+ * Yianilos (1993) Data structures and algorithms for nearest neighbor search in general metric spaces
+ */
+public class VantagePointTree {
+    /**
+     * Computes the distance between two points. Must satisfy the triangle inequality.
+     */
+    public interface Metric {
+        double distance(int a, int b);
+    }
+
+    private final Metric metric;
+    /**
+     * Point ids of each level, arranged as implicit tree: the vantage point of the range [lo, hi) is stored at
+     * lo, the inner half at [lo + 1, mid), the outer half at [mid, hi).
+     */
+    private final List<int[]> levels = new ArrayList<>();
+    /**
+     * Median distance of each vantage point to the points of its range, stored at the index of the vantage point.
+     */
+    private final List<double[]> thresholds = new ArrayList<>();
+    private final Random random = new Random(11);
+    private int size = 0;
+
+    // scratch buffers
+    private double[] buildDistances = new double[0];
+    private double[] heapDistances = new double[0];
+    private int[] heapIds = new int[0];
+    private int heapSize;
+
+    public VantagePointTree(Metric metric) {
+        this.metric = metric;
+    }
+
+    /**
+     * Returns the number of indexed points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a point to the index.
+     *
+     * @param id of the point
+     */
+    public void add(int id) {
+        int level = 0;
+        while (level < levels.size() && levels.get(level) != null) {
+            level++;
+        }
+
+        int[] points = new int[1 << level];
+        int count = 0;
+        for (int i = 0; i < level; i++) {
+            int[] lower = levels.get(i);
+            System.arraycopy(lower, 0, points, count, lower.length);
+            count += lower.length;
+            levels.set(i, null);
+            thresholds.set(i, null);
+        }
+        points[count] = id;
+
+        double[] pointThresholds = new double[points.length];
+        build(points, pointThresholds, 0, points.length);
+
+        if (level == levels.size()) {
+            levels.add(points);
+            thresholds.add(pointThresholds);
+        } else {
+            levels.set(level, points);
+            thresholds.set(level, pointThresholds);
+        }
+        size++;
+    }
+
+    private void build(int[] points, double[] pointThresholds, int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+
+        swap(points, lo, lo + random.nextInt(hi - lo));
+        int vantagePoint = points[lo];
+
+        if (buildDistances.length < points.length) {
+            buildDistances = new double[points.length];
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            buildDistances[i] = metric.distance(vantagePoint, points[i]);
+        }
+
+        int mid = lo + 1 + (hi - lo - 1) / 2;
+        select(points, buildDistances, lo + 1, hi - 1, mid);
+        pointThresholds[lo] = buildDistances[mid];
+
+        build(points, pointThresholds, lo + 1, mid);
+        build(points, pointThresholds, mid, hi);
+    }
+
+    /**
+     * Quickselect: partially orders points[left..right] by distance so that the element at index k is in its
+     * sorted position.
+     */
+    private void select(int[] points, double[] distances, int left, int right, int k) {
+        while (left < right) {
+            double pivot = distances[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(points, i, j);
+                    swap(distances, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the k nearest neighbours of a point. Only points with an id smaller than or equal to
+     * {@code maxId} are returned, which allows to ignore the most recent points.
+     *
+     * @param query  id of the query point, need not be indexed
+     * @param k      number of neighbours
+     * @param maxId  largest id to return
+     * @param result receives the ids of the neighbours, must have at least k entries
+     * @return number of neighbours found
+     */
+    public int nearest(int query, int k, int maxId, int[] result) {
+        if (heapIds.length < k) {
+            heapIds = new int[k];
+            heapDistances = new double[k];
+        }
+        heapSize = 0;
+
+        for (int level = 0; level < levels.size(); level++) {
+            int[] points = levels.get(level);
+            if (points != null) {
+                search(points, thresholds.get(level), 0, points.length, query, k, maxId);
+            }
+        }
+
+        System.arraycopy(heapIds, 0, result, 0, heapSize);
+        return heapSize;
+    }
+
+    private void search(int[] points, double[] pointThresholds, int lo, int hi, int query, int k, int maxId) {
+        if (lo >= hi) {
+            return;
+        }
+
+        int vantagePoint = points[lo];
+        double distance = metric.distance(query, vantagePoint);
+        if (vantagePoint <= maxId) {
+            offer(vantagePoint, distance, k);
+        }
+
+        if (hi - lo == 1) {
+            return;
+        }
+
+        int mid = lo + 1 + (hi - lo - 1) / 2;
+        double threshold = pointThresholds[lo];
+        if (distance < threshold) {
+            search(points, pointThresholds, lo + 1, mid, query, k, maxId);
+            if (distance + tau(k) >= threshold) {
+                search(points, pointThresholds, mid, hi, query, k, maxId);
+            }
+        } else {
+            search(points, pointThresholds, mid, hi, query, k, maxId);
+            if (distance - tau(k) <= threshold) {
+                search(points, pointThresholds, lo + 1, mid, query, k, maxId);
+            }
+        }
+    }
+
+    /**
+     * Distance to the current k-th neighbour, infinite as long as less than k neighbours are known.
+     */
+    private double tau(int k) {
+        return heapSize < k ? Double.POSITIVE_INFINITY : heapDistances[0];
+    }
+
+    /**
+     * Adds a candidate to the bounded max-heap of the nearest neighbours.
+     */
+    private void offer(int id, double distance, int k) {
+        if (heapSize < k) {
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heapDistances[parent] >= distance) {
+                    break;
+                }
+                heapDistances[i] = heapDistances[parent];
+                heapIds[i] = heapIds[parent];
+                i = parent;
+            }
+            heapDistances[i] = distance;
+            heapIds[i] = id;
+        } else if (distance < heapDistances[0]) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+                    child++;
+                }
+                if (heapDistances[child] <= distance) {
+                    break;
+                }
+                heapDistances[i] = heapDistances[child];
+                heapIds[i] = heapIds[child];
+                i = child;
+            }
+            heapDistances[i] = distance;
+            heapIds[i] = id;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+}